@@ -12,8 +12,27 @@ if "%CLASSPATH%" == "" goto runApp
 set CPATH=%CPATH%;"%CLASSPATH%"
 
 :runApp
+if "%JMINUSMINUS_PORT%" == "" goto runMain
+REM Hand the request to the compile server (see j--server)
+%JAVA% -classpath %CPATH% jminusminus.CompileClient %JMINUSMINUS_PORT% "j--" %*
+goto done
+
+:runMain
+if "%JMINUSMINUS_ARCHIVE%" == "" goto runPlain
+REM Start from a class data archive (Java 13 or later), made by the first run
+REM with JMINUSMINUS_ARCHIVE set (see j--); the JVM does without it if the
+REM class path has changed since, and deleting it has it made afresh
+set OPTIONS=-XX:SharedArchiveFile="%JMINUSMINUS_ARCHIVE%"
+if not exist "%JMINUSMINUS_ARCHIVE%" set OPTIONS=-XX:ArchiveClassesAtExit="%JMINUSMINUS_ARCHIVE%"
+%JAVA% %OPTIONS% -Xlog:cds=off -Xlog:cds+dynamic=off -classpath %CPATH% jminusminus.Main "j--" %*
+set OPTIONS=
+goto done
+
+:runPlain
 %JAVA% -classpath %CPATH% jminusminus.Main "j--" %*
 
+:done
+
 set JAVA=
 set BASE_DIR=
 set CPATH=
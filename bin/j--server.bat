@@ -0,0 +1,23 @@
+@echo off
+
+REM Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+REM Wrapper script for running the jminusminus.CompileServer program. Once it
+REM is up, set JMINUSMINUS_PORT to its port for j-- to send requests to it. Only
+REM the user who started it can: it writes a key for requests to carry to
+REM %USERPROFILE%\.j--server.key, or to the file JMINUSMINUS_KEY names,
+REM readable by no one else.
+
+set BASE_DIR=%~dp0
+set j="%BASE_DIR%\..\"
+set JAVA=java
+set CPATH="%BASE_DIR%\..\lib\j--.jar;%BASE_DIR%\..\lib\spim.jar"
+if "%CLASSPATH%" == "" goto runApp
+set CPATH=%CPATH%;"%CLASSPATH%"
+
+:runApp
+%JAVA% -classpath %CPATH% jminusminus.CompileServer %*
+
+set JAVA=
+set BASE_DIR=
+set CPATH=
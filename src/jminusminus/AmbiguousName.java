@@ -54,6 +54,19 @@ class AmbiguousName {
     public AmbiguousName(int line, String name) {
         this.line = line;
         this.name = name;
+        CompilationSession.current().created(this);
+    }
+
+    /**
+     * Move the name by the specified number of lines, after lines were added
+     * to or removed from the source before it.
+     * 
+     * @param delta
+     *            number of lines added (or, if negative, removed).
+     */
+
+    public void shiftLine(int delta) {
+        line += delta;
     }
 
     /**
@@ -81,7 +94,7 @@ class AmbiguousName {
                 break;
             } else if (!st.hasMoreTokens()) {
                 // Nothing found. :(
-                JAST.compilationUnit.reportSemanticError(line,
+                JAST.compilationUnit().reportSemanticError(line,
                         "Cannot find name " + newName);
                 return null;
             } else {
@@ -322,11 +322,10 @@ public class CLAbsorber {
         try {
             int maxStack = in.readUnsignedShort();
             int maxLocals = in.readUnsignedShort();
-            ArrayList<Integer> code = new ArrayList<Integer>();
             long codeLength = in.readUnsignedInt();
-            for (long l = 0; l < codeLength; l++) {
-                code.add(in.readUnsignedByte());
-            }
+            byte[] bytes = new byte[(int) codeLength];
+            in.readFully(bytes);
+            CLByteBuffer code = new CLByteBuffer(bytes);
             int exceptionTableLength = in.readUnsignedShort();
             ArrayList<CLExceptionInfo> exceptionTable = new ArrayList<CLExceptionInfo>();
             for (int l = 0; l < exceptionTableLength; l++) {
@@ -913,10 +912,10 @@ public class CLAbsorber {
      */
 
     public CLAbsorber(String className) {
+        CLInputStream in = null;
         try {
             this.className = className;
-            CLPath classPath = new CLPath();
-            CLInputStream in = classPath.loadClass(className);
+            in = CompilationSession.current().classPath().loadClass(className);
             errorHasOccurred = false;
             if (in == null) {
                 reportError("Error loading %s", className);
@@ -984,6 +983,14 @@ public class CLAbsorber {
             reportError("Unexpected end of file %s", className);
         } catch (IOException e) {
             reportError("Error reading file %s", className);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // Nothing to do
+                }
+            }
         }
     }
 
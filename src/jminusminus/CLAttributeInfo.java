@@ -228,7 +228,7 @@ class CLCodeAttribute extends CLAttributeInfo {
     /**
      * Code_attribute.code item.
      */
-    public ArrayList<Integer> code;
+    public CLByteBuffer code;
 
     /** Code_attribute.exception_table_length item. */
     public int exceptionTableLength;
@@ -287,7 +287,7 @@ class CLCodeAttribute extends CLAttributeInfo {
 
     public CLCodeAttribute(int attributeNameIndex, long attributeLength,
             int maxStack, int maxLocals, long codeLength,
-            ArrayList<Integer> code, int exceptionTableLength,
+            CLByteBuffer code, int exceptionTableLength,
             ArrayList<CLExceptionInfo> exceptionTable, int attributesCount,
             ArrayList<CLAttributeInfo> attributes) {
         super(attributeNameIndex, attributeLength);
@@ -310,9 +310,7 @@ class CLCodeAttribute extends CLAttributeInfo {
         out.writeShort(maxStack);
         out.writeShort(maxLocals);
         out.writeInt(codeLength);
-        for (int i = 0; i < code.size(); i++) {
-            out.writeByte(code.get(i));
-        }
+        out.write(code);
         out.writeShort(exceptionTableLength);
         for (int i = 0; i < exceptionTable.size(); i++) {
             exceptionTable.get(i).write(out);
@@ -348,27 +346,27 @@ class CLCodeAttribute extends CLAttributeInfo {
                 p.printf("%-10s%-17s\n", pc, mnemonic);
                 break;
             case 1:
-                operandByte1 = code.get(++i).shortValue();
+                operandByte1 = (short) code.get(++i);
                 p.printf("%-10s%-17s%-5s\n", pc, mnemonic, operandByte1);
                 break;
             case 2:
-                operandByte1 = code.get(++i).shortValue();
-                operandByte2 = code.get(++i).shortValue();
+                operandByte1 = (short) code.get(++i);
+                operandByte2 = (short) code.get(++i);
                 p.printf("%-10s%-17s%-5s%-5s\n", pc, mnemonic, operandByte1,
                         operandByte2);
                 break;
             case 3:
-                operandByte1 = code.get(++i).shortValue();
-                operandByte2 = code.get(++i).shortValue();
-                operandByte3 = code.get(++i).shortValue();
+                operandByte1 = (short) code.get(++i);
+                operandByte2 = (short) code.get(++i);
+                operandByte3 = (short) code.get(++i);
                 p.printf("%-10s%-17s%-5s%-5s%-5s\n", pc, mnemonic,
                         operandByte1, operandByte2, operandByte3);
                 break;
             case 4:
-                operandByte1 = code.get(++i).shortValue();
-                operandByte2 = code.get(++i).shortValue();
-                operandByte3 = code.get(++i).shortValue();
-                operandByte4 = code.get(++i).shortValue();
+                operandByte1 = (short) code.get(++i);
+                operandByte2 = (short) code.get(++i);
+                operandByte3 = (short) code.get(++i);
+                operandByte4 = (short) code.get(++i);
                 p.printf("%-10s%-17s%-5s%-5s%-5s%-5s\n", pc, mnemonic,
                         operandByte1, operandByte2, operandByte3, operandByte4);
                 break;
@@ -0,0 +1,111 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A growable array of bytes, used for the code array of a method. Bytes are
+ * added as unsigned values (0 - 255) and read back as such, without boxing
+ * each of them as a list of integers would.
+ */
+
+class CLByteBuffer {
+
+    /** The bytes; only the first size of them are in use. */
+    private byte[] bytes;
+
+    /** Number of bytes in the buffer. */
+    private int size;
+
+    /**
+     * Construct an empty CLByteBuffer.
+     */
+
+    public CLByteBuffer() {
+        this(64);
+    }
+
+    /**
+     * Construct an empty CLByteBuffer with room for the specified number of
+     * bytes.
+     *
+     * @param capacity
+     *            initial capacity.
+     */
+
+    public CLByteBuffer(int capacity) {
+        bytes = new byte[Math.max(capacity, 1)];
+        size = 0;
+    }
+
+    /**
+     * Construct a CLByteBuffer holding the specified bytes. The array is used
+     * as is, not copied.
+     *
+     * @param bytes
+     *            the bytes.
+     */
+
+    public CLByteBuffer(byte[] bytes) {
+        this.bytes = bytes;
+        size = bytes.length;
+    }
+
+    /**
+     * Add the specified unsigned byte to the end of the buffer.
+     *
+     * @param b
+     *            the byte; only its lower 8 bits are kept.
+     */
+
+    public void add(int b) {
+        if (size == bytes.length) {
+            byte[] grown = new byte[bytes.length * 2];
+            System.arraycopy(bytes, 0, grown, 0, size);
+            bytes = grown;
+        }
+        bytes[size++] = (byte) b;
+    }
+
+    /**
+     * Return the byte at the specified index, as an unsigned value.
+     *
+     * @param i
+     *            index of the byte.
+     * @return the byte, 0 - 255.
+     */
+
+    public int get(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: "
+                    + size);
+        }
+        return bytes[i] & 0xFF;
+    }
+
+    /**
+     * Return the number of bytes in the buffer.
+     *
+     * @return the number of bytes.
+     */
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Write the bytes in the buffer to the specified output stream.
+     *
+     * @param out
+     *            output stream.
+     * @throws IOException
+     *             if an error occurs while writing.
+     */
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, size);
+    }
+
+}
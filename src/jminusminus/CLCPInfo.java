@@ -4,6 +4,7 @@ package jminusminus;
 
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import static jminusminus.CLConstants.*;
 
 /**
@@ -99,6 +100,14 @@ class CLConstantClassInfo extends CLCPInfo {
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        return nameIndex;
+    }
+
     /**
      * @inheritDoc
      */
@@ -166,6 +175,14 @@ abstract class CLConstantMemberRefInfo extends CLCPInfo {
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        return (tag * 31 + classIndex) * 31 + nameAndTypeIndex;
+    }
+
 }
 
 /**
@@ -304,6 +321,14 @@ class CLConstantStringInfo extends CLCPInfo {
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        return stringIndex;
+    }
+
     /**
      * @inheritDoc
      */
@@ -380,6 +405,14 @@ class CLConstantIntegerInfo extends CLCPInfo {
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        return i;
+    }
+
     /**
      * @inheritDoc
      */
@@ -452,6 +485,15 @@ class CLConstantFloatInfo extends CLCPInfo {
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        // 0.0f == -0.0f, so they must hash alike
+        return Float.floatToIntBits(f == 0.0f ? 0.0f : f);
+    }
+
     /**
      * @inheritDoc
      */
@@ -556,6 +598,14 @@ class CLConstantLongInfo extends CLCPInfo {
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        return (int) (l ^ (l >>> 32));
+    }
+
     /**
      * @inheritDoc
      */
@@ -660,6 +710,16 @@ class CLConstantDoubleInfo extends CLCPInfo {
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        // 0.0 == -0.0, so they must hash alike
+        long bits = Double.doubleToLongBits(d == 0.0 ? 0.0 : d);
+        return (int) (bits ^ (bits >>> 32));
+    }
+
     /**
      * @inheritDoc
      */
@@ -724,6 +784,14 @@ class CLConstantNameAndTypeInfo extends CLCPInfo {
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        return nameIndex * 31 + descriptorIndex;
+    }
+
     /**
      * @inheritDoc
      */
@@ -744,6 +812,9 @@ class CLConstantUtf8Info extends CLCPInfo {
     /** CONSTANT_Utf8_info.bytes item. */
     public byte[] b;
 
+    /** Hash code of the string value; 0 until computed. */
+    private int hash;
+
     /**
      * Construct a CLConstantUtf8Info object.
      * 
@@ -782,13 +853,25 @@ class CLConstantUtf8Info extends CLCPInfo {
     public boolean equals(Object obj) {
         if (obj instanceof CLConstantUtf8Info) {
             CLConstantUtf8Info c = (CLConstantUtf8Info) obj;
-            if ((new String(b)).equals(new String(c.b))) {
+            if (Arrays.equals(b, c.b)
+                    || (new String(b)).equals(new String(c.b))) {
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        if (hash == 0) {
+            hash = new String(b).hashCode();
+        }
+        return hash;
+    }
+
     /**
      * @inheritDoc
      */
@@ -4,6 +4,7 @@ package jminusminus;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 /**
  * Representation of a class' constant_pool table (JVM Spec Section 4.5). An
@@ -22,6 +23,12 @@ class CLConstantPool {
     /** List of constant pool items. */
     private ArrayList<CLCPInfo> cpItems;
 
+    /**
+     * Maps each distinct item (by tag and contents) to the constant pool index
+     * of its first occurrence.
+     */
+    private HashMap<CLCPInfo, Integer> cpIndices;
+
     /**
      * Look for the specified item in the constant pool. If it exists, return
      * its index. Otherwise, add the item to the constant pool and return its
@@ -47,6 +54,7 @@ class CLConstantPool {
     public CLConstantPool() {
         cpIndex = 1;
         cpItems = new ArrayList<CLCPInfo>();
+        cpIndices = new HashMap<CLCPInfo, Integer>();
     }
 
     /**
@@ -69,12 +77,8 @@ class CLConstantPool {
      */
 
     public int find(CLCPInfo cpInfo) {
-        int index = cpItems.indexOf(cpInfo);
-        if (index != -1) {
-            CLCPInfo c = cpItems.get(index);
-            index = c.cpIndex;
-        }
-        return index;
+        Integer index = cpIndices.get(cpInfo);
+        return index == null ? -1 : index;
     }
 
     /**
@@ -106,6 +110,9 @@ class CLConstantPool {
         int i = cpIndex++;
         cpInfo.cpIndex = i;
         cpItems.add(cpInfo);
+        if (!cpIndices.containsKey(cpInfo)) {
+            cpIndices.put(cpInfo, i);
+        }
 
         // long and double, with their lower and higher words,
         // are treated by JVM as two items in the constant pool. We
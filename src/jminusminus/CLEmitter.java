@@ -3,7 +3,6 @@
 package jminusminus;
 
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -137,12 +136,6 @@ public class CLEmitter {
      */
     private boolean errorHasOccurred;
 
-    /**
-     * Class loader to use for creating in-memory representation of classes from
-     * byte streams.
-     */
-    private static ByteClassLoader byteClassLoader;
-
     /**
      * Initialize all variables used for adding a method to the ClassFile
      * structure to their appropriate values.
@@ -201,7 +194,7 @@ public class CLEmitter {
             }
 
             // Convert Instruction objects to bytes
-            ArrayList<Integer> byteCode = new ArrayList<Integer>();
+            CLByteBuffer byteCode = new CLByteBuffer();
             int maxLocals = mArgumentCount;
             for (int i = 0; i < mCode.size(); i++) {
                 CLInstruction instr = mCode.get(i);
@@ -247,7 +240,7 @@ public class CLEmitter {
                     }
                 }
 
-                byteCode.addAll(instr.toBytes());
+                instr.toBytes(byteCode);
             }
 
             // Code attribute; add only if method is neither
@@ -782,7 +775,7 @@ public class CLEmitter {
      * @return a Code attribute.
      */
 
-    private CLCodeAttribute codeAttribute(ArrayList<Integer> byteCode,
+    private CLCodeAttribute codeAttribute(CLByteBuffer byteCode,
             ArrayList<CLExceptionInfo> exceptionTable, int stackDepth,
             int maxLocals) {
         int codeLength = byteCode.size();
@@ -867,7 +860,8 @@ public class CLEmitter {
     }
 
     /**
-     * Report any error that occurs while creating/writing the class, to STDERR.
+     * Report any error that occurs while creating/writing the class, to the
+     * diagnostics stream of the current compilation session.
      * 
      * @param message
      *            message identifying the error.
@@ -876,8 +870,9 @@ public class CLEmitter {
      */
 
     private void reportEmitterError(String message, Object... args) {
-        System.err.printf(message, args);
-        System.err.println();
+        CompilationSession.current().report(
+                new Diagnostic(Diagnostic.Kind.EMITTER, null, 0, String.format(
+                        message, args)));
         errorHasOccurred = true;
     }
 
@@ -1880,11 +1875,12 @@ public class CLEmitter {
     }
 
     /**
-     * Set a new ByteClassLoader for loading classes from byte streams.
+     * Set a new ByteClassLoader for loading classes from byte streams in the
+     * current compilation session.
      */
 
     public static void initializeByteClassLoader() {
-        byteClassLoader = new ByteClassLoader();
+        CompilationSession.current().initializeByteClassLoader();
     }
 
     /**
@@ -1907,16 +1903,12 @@ public class CLEmitter {
         try {
             // Extract the bytes from the class representation in
             // memory into an array of bytes
-            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-            CLOutputStream out = new CLOutputStream(new BufferedOutputStream(
-                    byteStream));
-            clFile.write(out);
-            out.close();
-            byte[] classBytes = byteStream.toByteArray();
-            byteStream.close();
+            byte[] classBytes = clFile.toBytes();
 
             // Load a Java Class instance from its byte
             // representation
+            ByteClassLoader byteClassLoader = CompilationSession.current()
+                    .byteClassLoader();
             byteClassLoader.setClassBytes(classBytes);
             theClass = byteClassLoader.loadClass(name, true);
         } catch (IOException e) {
@@ -1938,6 +1930,7 @@ public class CLEmitter {
         if (!toFile) {
             return;
         }
+        CompilationSession.current().start("write");
         String outFile = destDir + File.separator + name + ".class";
         try {
             File file = new File(destDir + File.separator
@@ -1952,6 +1945,7 @@ public class CLEmitter {
         } catch (IOException e) {
             reportEmitterError("Cannot write to file %s", outFile);
         }
+        CompilationSession.current().stop("write");
     }
 }
 
@@ -2232,9 +2226,9 @@ class ByteClassLoader extends ClassLoader {
 }
 
 /**
- * Inherits from java.out.DataOutputStream and provides an extra function for
- * writing unsigned int to the output stream, which is required for writing Java
- * class files.
+ * Inherits from java.out.DataOutputStream and provides extra functions for
+ * writing unsigned int and code arrays to the output stream, which are
+ * required for writing Java class files.
  */
 
 class CLOutputStream extends DataOutputStream {
@@ -2275,4 +2269,17 @@ class CLOutputStream extends DataOutputStream {
         out.write((byte) (mask & v));
     }
 
+    /**
+     * Write the bytes in the specified buffer to the output stream.
+     * 
+     * @param bytes
+     *            the buffer.
+     * @throws IOException
+     *             if an error occurs while writing.
+     */
+
+    public final void write(CLByteBuffer bytes) throws IOException {
+        bytes.writeTo(this);
+    }
+
 }
@@ -359,12 +359,13 @@ abstract class CLInstruction {
     }
 
     /**
-     * Return the bytecode for this instruction.
+     * Add the bytecode for this instruction to the specified buffer.
      * 
-     * @return bytecode.
+     * @param bytes
+     *            buffer holding the code array being built.
      */
 
-    public abstract ArrayList<Integer> toBytes();
+    public abstract void toBytes(CLByteBuffer bytes);
 
     /**
      * Return the byte from i at position byteNum.
@@ -435,12 +436,10 @@ class CLObjectInstruction extends CLInstruction {
      * @inheritDoc
      */
 
-    public ArrayList<Integer> toBytes() {
-        ArrayList<Integer> bytes = new ArrayList<Integer>();
+    public void toBytes(CLByteBuffer bytes) {
         bytes.add(opcode);
         bytes.add(byteAt(index, 2));
         bytes.add(byteAt(index, 1));
-        return bytes;
     }
 
 }
@@ -486,12 +485,10 @@ class CLFieldInstruction extends CLInstruction {
      * @inheritDoc
      */
 
-    public ArrayList<Integer> toBytes() {
-        ArrayList<Integer> bytes = new ArrayList<Integer>();
+    public void toBytes(CLByteBuffer bytes) {
         bytes.add(opcode);
         bytes.add(byteAt(index, 2));
         bytes.add(byteAt(index, 1));
-        return bytes;
     }
 
 }
@@ -572,8 +569,7 @@ class CLMethodInstruction extends CLInstruction {
      * @inheritDoc
      */
 
-    public ArrayList<Integer> toBytes() {
-        ArrayList<Integer> bytes = new ArrayList<Integer>();
+    public void toBytes(CLByteBuffer bytes) {
         bytes.add(opcode);
         if (instructionInfo[opcode].category == METHOD1) {
             bytes.add(byteAt(index, 2));
@@ -587,7 +583,6 @@ class CLMethodInstruction extends CLInstruction {
                 bytes.add(0);
             }
         }
-        return bytes;
     }
 
 }
@@ -675,8 +670,7 @@ class CLArrayInstruction extends CLInstruction {
      * @inheritDoc
      */
 
-    public ArrayList<Integer> toBytes() {
-        ArrayList<Integer> bytes = new ArrayList<Integer>();
+    public void toBytes(CLByteBuffer bytes) {
         bytes.add(opcode);
         switch (opcode) {
         case NEWARRAY:
@@ -692,7 +686,6 @@ class CLArrayInstruction extends CLInstruction {
             bytes.add(byteAt(dim, 1));
             break;
         }
-        return bytes;
     }
 
 }
@@ -762,8 +755,7 @@ class CLArithmeticInstruction extends CLInstruction {
      * @inheritDoc
      */
 
-    public ArrayList<Integer> toBytes() {
-        ArrayList<Integer> bytes = new ArrayList<Integer>();
+    public void toBytes(CLByteBuffer bytes) {
         bytes.add(opcode);
         if (opcode == IINC) {
             if (isWidened) {
@@ -776,7 +768,6 @@ class CLArithmeticInstruction extends CLInstruction {
                 bytes.add(byteAt(constVal, 1));
             }
         }
-        return bytes;
     }
 
 }
@@ -809,10 +800,8 @@ class CLBitInstruction extends CLInstruction {
      * @inheritDoc
      */
 
-    public ArrayList<Integer> toBytes() {
-        ArrayList<Integer> bytes = new ArrayList<Integer>();
+    public void toBytes(CLByteBuffer bytes) {
         bytes.add(opcode);
-        return bytes;
     }
 
 }
@@ -845,10 +834,8 @@ class CLComparisonInstruction extends CLInstruction {
      * @inheritDoc
      */
 
-    public ArrayList<Integer> toBytes() {
-        ArrayList<Integer> bytes = new ArrayList<Integer>();
+    public void toBytes(CLByteBuffer bytes) {
         bytes.add(opcode);
-        return bytes;
     }
 
 }
@@ -881,10 +868,8 @@ class CLConversionInstruction extends CLInstruction {
      * @inheritDoc
      */
 
-    public ArrayList<Integer> toBytes() {
-        ArrayList<Integer> bytes = new ArrayList<Integer>();
+    public void toBytes(CLByteBuffer bytes) {
         bytes.add(opcode);
-        return bytes;
     }
 
 }
@@ -1145,8 +1130,7 @@ class CLFlowControlInstruction extends CLInstruction {
      * @inheritDoc
      */
 
-    public ArrayList<Integer> toBytes() {
-        ArrayList<Integer> bytes = new ArrayList<Integer>();
+    public void toBytes(CLByteBuffer bytes) {
         bytes.add(opcode);
         switch (opcode) {
         case RET:
@@ -1220,7 +1204,6 @@ class CLFlowControlInstruction extends CLInstruction {
             bytes.add(byteAt(jumpToOffset, 2));
             bytes.add(byteAt(jumpToOffset, 1));
         }
-        return bytes;
     }
 
 }
@@ -1315,8 +1298,7 @@ class CLLoadStoreInstruction extends CLInstruction {
      * @inheritDoc
      */
 
-    public ArrayList<Integer> toBytes() {
-        ArrayList<Integer> bytes = new ArrayList<Integer>();
+    public void toBytes(CLByteBuffer bytes) {
         bytes.add(opcode);
         if (instructionInfo[opcode].operandCount > 0) {
             if (localVariableIndex != IRRELEVANT) {
@@ -1338,7 +1320,6 @@ class CLLoadStoreInstruction extends CLInstruction {
                 }
             }
         }
-        return bytes;
     }
 
 }
@@ -1371,10 +1352,8 @@ class CLStackInstruction extends CLInstruction {
      * @inheritDoc
      */
 
-    public ArrayList<Integer> toBytes() {
-        ArrayList<Integer> bytes = new ArrayList<Integer>();
+    public void toBytes(CLByteBuffer bytes) {
         bytes.add(opcode);
-        return bytes;
     }
 
 }
@@ -1407,10 +1386,8 @@ class CLMiscInstruction extends CLInstruction {
      * @inheritDoc
      */
 
-    public ArrayList<Integer> toBytes() {
-        ArrayList<Integer> bytes = new ArrayList<Integer>();
+    public void toBytes(CLByteBuffer bytes) {
         bytes.add(opcode);
-        return bytes;
     }
 
 }
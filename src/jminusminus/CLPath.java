@@ -5,9 +5,11 @@ package jminusminus;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.StringTokenizer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -16,6 +18,19 @@ import java.util.zip.ZipFile;
  * This class can be used to locate and load system, extension, and user-defined
  * class files from directories and zip (jar) files. The code for this class has
  * been adapted from the Kopi (http://www.dms.at/kopi/) project.
+ *
+ * A class is loaded from the first entry of the class path that has it. Where
+ * each class was found is remembered, as are the listings of the directories
+ * looked in, so a class path is best shared by the lookups of a compilation
+ * (see CompilationSession.classPath()). Each zip (jar) file is opened once,
+ * and kept open, for all the class paths of the JVM, for as long as it is not
+ * changed: a class path checks the modification time and length of a zip file
+ * the first time it looks in it, and opens it again if they have changed since
+ * it was opened, so that a long-running compile server (see CompileServer)
+ * sees a jar rebuilt between compilations. The class paths using each open
+ * zip file are counted, and one that has been replaced (or has gone) is
+ * closed once the last of them is closed (see close()), so that its file
+ * descriptor is not held until the garbage collector gets to it.
  */
 
 class CLPath {
@@ -26,6 +41,31 @@ class CLPath {
      */
     private ArrayList<String> dirs;
 
+    /**
+     * Maps the names of the classes looked up to the index in dirs of the
+     * entry they were found in, or -1 if they were not found.
+     */
+    private HashMap<String, Integer> index;
+
+    /**
+     * Maps directories (of packages, within class path directories) to the
+     * names of the files in them.
+     */
+    private HashMap<File, HashSet<String>> listings;
+
+    /**
+     * Maps the names of the zip (jar) files this class path has looked in to
+     * the open files, which this class path is counted as a user of.
+     */
+    private HashMap<String, OpenArchive> zips;
+
+    /**
+     * Maps the names of the zip (jar) files opened so far, by all class paths,
+     * to the open files, as they were when last opened; those that have gone
+     * are removed.
+     */
+    private static HashMap<String, OpenArchive> archives = new HashMap<String, OpenArchive>();
+
     /**
      * Return a list of conceptual directories defining the class path.
      * 
@@ -52,12 +92,11 @@ class CLPath {
                 container.add(entries.nextToken());
             }
         } else {
-            float version = Float
-                    .parseFloat(System.getProperty("java.version"));
-            if (version > 1.1) {
-                String dir = System.getProperty("java.home")
-                        + File.separatorChar + "lib" + File.separatorChar
-                        + "rt.jar";
+            // There is no rt.jar from Java 9 on, where the version is no
+            // longer of the form 1.x
+            String dir = System.getProperty("java.home") + File.separatorChar
+                    + "lib" + File.separatorChar + "rt.jar";
+            if (new File(dir).isFile()) {
                 container.add(dir);
             }
         }
@@ -105,13 +144,16 @@ class CLPath {
                     if (file.isFile()
                             && (file.getName().endsWith(".zip") || file
                                     .getName().endsWith(".jar"))) {
-                        dirs.add(file.getName());
+                        dirs.add(file.getPath());
                     } else {
                         // Wrong suffix; ignore
                     }
                 }
             }
         }
+        index = new HashMap<String, Integer>();
+        listings = new HashMap<File, HashSet<String>>();
+        zips = new HashMap<String, OpenArchive>();
     }
 
     /**
@@ -127,37 +169,232 @@ class CLPath {
      */
 
     public CLInputStream loadClass(String name) {
-        CLInputStream reader = null;
+        Integer i = index.get(name);
+        if (i == null) {
+            i = find(name);
+            index.put(name, i);
+        }
+        if (i == -1) {
+            return null;
+        }
+        String dir = dirs.get(i);
+        try {
+            ZipFile zip = archive(dir);
+            if (zip != null) {
+                ZipEntry entry = zip.getEntry(name + ".class");
+                if (entry != null) {
+                    return new CLInputStream(new BufferedInputStream(zip
+                            .getInputStream(entry)));
+                }
+            } else {
+                return new CLInputStream(new BufferedInputStream(
+                        new FileInputStream(classFile(dir, name))));
+            }
+        } catch (IOException e) {
+            // Ignore
+        }
+        return null;
+    }
+
+    /**
+     * Return the index in dirs of the first class path entry that has the
+     * class with the specified name, or -1 if none has.
+     * 
+     * @param name
+     *            the fully-qualified name of the class.
+     * @return index of the class path entry, or -1.
+     */
+
+    private int find(String name) {
         for (int i = 0; i < dirs.size(); i++) {
             String dir = dirs.get(i);
-            File file = new File(dir);
-            if (file.isDirectory()) {
-                File theClass = new File(dir, name.replace('/',
-                        File.separatorChar)
-                        + ".class");
-                if (theClass.canRead()) {
+            ZipFile zip = archive(dir);
+            if (zip != null) {
+                if (zip.getEntry(name + ".class") != null) {
+                    return i;
+                }
+            } else {
+                File theClass = classFile(dir, name);
+                if (listing(theClass.getParentFile()).contains(
+                        theClass.getName())) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the file for the class with the specified name within the
+     * specified class path directory.
+     * 
+     * @param dir
+     *            the directory.
+     * @param name
+     *            the fully-qualified name of the class.
+     * @return the class file.
+     */
+
+    private File classFile(String dir, String name) {
+        return new File(dir, name.replace('/', File.separatorChar) + ".class");
+    }
+
+    /**
+     * Return the names of the files in the specified directory; the set is
+     * empty if it is not a directory.
+     * 
+     * @param directory
+     *            the directory.
+     * @return the names of the files in it.
+     */
+
+    private HashSet<String> listing(File directory) {
+        HashSet<String> listing = listings.get(directory);
+        if (listing == null) {
+            listing = new HashSet<String>();
+            String[] names = directory.list();
+            if (names != null) {
+                listing.addAll(Arrays.asList(names));
+            }
+            listings.put(directory, listing);
+        }
+        return listing;
+    }
+
+    /**
+     * Stop using the zip (jar) files this class path has looked in, closing
+     * those that have been replaced if no other class path is using them.
+     * The class path must not be used once it is closed.
+     */
+
+    public void close() {
+        synchronized (archives) {
+            for (OpenArchive archive : zips.values()) {
+                archive.users--;
+                archive.closeIfUnused();
+            }
+        }
+        zips.clear();
+    }
+
+    /**
+     * Return the open zip (jar) file with the specified name, as it was when
+     * this class path first looked in it. Return null if the name is not that
+     * of a file, or the file cannot be opened as a zip file.
+     * 
+     * @param name
+     *            name of the zip (jar) file.
+     * @return the open zip file, or null.
+     */
+
+    private ZipFile archive(String name) {
+        OpenArchive archive = zips.get(name);
+        if (archive == null) {
+            archive = open(name);
+            zips.put(name, archive);
+        }
+        return archive.zip;
+    }
+
+    /**
+     * Return the open zip (jar) file with the specified name, opening it if
+     * it has not been opened yet, or if it has changed since it was, and
+     * count one more user of it.
+     * 
+     * @param name
+     *            name of the zip (jar) file.
+     * @return the open zip file; its zip file is null if the name is not that
+     *         of a file, or the file cannot be opened as a zip file.
+     */
+
+    private static OpenArchive open(String name) {
+        File file = new File(name);
+        long modified = file.isFile() ? file.lastModified() : -1;
+        long length = file.length();
+        synchronized (archives) {
+            OpenArchive archive = archives.get(name);
+            if (archive != null && (archive.modified != modified
+                    || archive.length != length)) {
+                // Left open for the class paths still reading from it
+                archives.remove(name);
+                archive.isReplaced = true;
+                archive.closeIfUnused();
+                archive = null;
+            }
+            if (archive == null) {
+                ZipFile zip = null;
+                if (modified != -1) {
                     try {
-                        reader = new CLInputStream(new BufferedInputStream(
-                                new FileInputStream(theClass)));
-                    } catch (FileNotFoundException e) {
-                        // Ignore
+                        zip = new ZipFile(file);
+                    } catch (IOException e) {
+                        // Not a zip file; ignore
                     }
                 }
-            } else if (file.isFile()) {
-                try {
-                    ZipFile zip = new ZipFile(dir);
-                    ZipEntry entry = zip.getEntry(name + ".class");
-                    if (entry != null) {
-                        reader = new CLInputStream(zip.getInputStream(entry));
-                    }
-                } catch (IOException e) {
-                    // Ignore
+                archive = new OpenArchive(zip, modified, length);
+                if (modified != -1) {
+                    archives.put(name, archive);
                 }
-            } else {
-                // Bogus entry; ignore
+            }
+            archive.users++;
+            return archive;
+        }
+    }
+
+}
+
+/**
+ * A zip (jar) file opened by a class path, along with the modification time
+ * and length the file had when it was opened, and the number of class paths
+ * using it. Its fields are guarded by the lock on CLPath's map of archives.
+ */
+
+class OpenArchive {
+
+    /** The open zip file; null if the file could not be opened. */
+    public ZipFile zip;
+
+    /** Modification time of the file; -1 if it is not a file. */
+    public long modified;
+
+    /** Length of the file. */
+    public long length;
+
+    /** Number of class paths using the zip file. */
+    public int users;
+
+    /** Whether the file has changed (or gone) since it was opened. */
+    public boolean isReplaced;
+
+    /**
+     * Construct an OpenArchive.
+     * 
+     * @param zip
+     *            the open zip file; null if the file could not be opened.
+     * @param modified
+     *            modification time of the file; -1 if it is not a file.
+     * @param length
+     *            length of the file.
+     */
+
+    public OpenArchive(ZipFile zip, long modified, long length) {
+        this.zip = zip;
+        this.modified = modified;
+        this.length = length;
+    }
+
+    /**
+     * Close the zip file if it has been replaced and no class path is using
+     * it any longer.
+     */
+
+    public void closeIfUnused() {
+        if (isReplaced && users == 0 && zip != null) {
+            try {
+                zip.close();
+            } catch (IOException e) {
+                // Nothing to do
             }
         }
-        return reader;
     }
 
 }
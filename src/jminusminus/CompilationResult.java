@@ -0,0 +1,102 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * The result of compiling a source with InMemoryCompiler: whether an error
+ * occurred, the diagnostics, and (if there was no error) the generated
+ * classes.
+ */
+
+public class CompilationResult {
+
+    /** Whether an error occurred. */
+    private boolean errorHasOccurred;
+
+    /** The diagnostics reported by the compiler. */
+    private ArrayList<Diagnostic> diagnostics;
+
+    /** The generated classes, one per type declaration. */
+    private ArrayList<CLFile> clFiles;
+
+    /** Maps class names to class file bytes; computed when first asked for. */
+    private LinkedHashMap<String, byte[]> classBytes;
+
+    /**
+     * Construct a CompilationResult.
+     * 
+     * @param errorHasOccurred
+     *            whether an error occurred.
+     * @param diagnostics
+     *            the diagnostics reported by the compiler.
+     * @param clFiles
+     *            the generated classes; null if an error occurred.
+     */
+
+    CompilationResult(boolean errorHasOccurred,
+            ArrayList<Diagnostic> diagnostics, ArrayList<CLFile> clFiles) {
+        this.errorHasOccurred = errorHasOccurred;
+        this.diagnostics = diagnostics;
+        this.clFiles = clFiles == null ? new ArrayList<CLFile>() : clFiles;
+    }
+
+    /**
+     * Return true if an error occurred during compilation; false otherwise.
+     * 
+     * @return true or false.
+     */
+
+    public boolean errorHasOccurred() {
+        return errorHasOccurred;
+    }
+
+    /**
+     * Return the diagnostics reported by the compiler, in the order in which
+     * they were reported.
+     * 
+     * @return list of diagnostics.
+     */
+
+    public ArrayList<Diagnostic> diagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Return the generated classes, in the order in which their types are
+     * declared; empty if an error occurred.
+     * 
+     * @return list of CLFile objects.
+     */
+
+    public ArrayList<CLFile> clFiles() {
+        return clFiles;
+    }
+
+    /**
+     * Return the generated classes as class file bytes, keyed by their fully
+     * qualified internal names (eg, pass/Factorial), in the order in which
+     * their types are declared; empty if an error occurred.
+     * 
+     * @return map of class names to class file bytes.
+     */
+
+    public LinkedHashMap<String, byte[]> classBytes() {
+        if (classBytes == null) {
+            classBytes = new LinkedHashMap<String, byte[]>();
+            for (CLFile clFile : clFiles) {
+                try {
+                    classBytes.put(clFile.name(), clFile.toBytes());
+                } catch (IOException e) {
+                    // Cannot happen, since the bytes are written to memory
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        return classBytes;
+    }
+
+}
@@ -0,0 +1,382 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The state that belongs to the compilation of a single source file: the
+ * compilation unit being compiled, the class loader used for its partial
+ * classes, the types it declares, the streams to which its output and
+ * diagnostics are written, the diagnostics reported so far, and the directory
+ * against which relative file names are resolved.
+ *
+ * A thread compiles at most one source file at a time, so the session for the
+ * file being compiled is bound to the current thread. The AST nodes, the
+ * scanner, the parser and the emitters get at it through current(), which is
+ * what allows several source files to be compiled concurrently. A thread that
+ * never entered a session gets a default one that writes to STDOUT and STDERR.
+ */
+
+class CompilationSession {
+
+    /** The session bound to each thread. */
+    private static ThreadLocal<CompilationSession> current = new ThreadLocal<CompilationSession>() {
+        protected CompilationSession initialValue() {
+            return new CompilationSession();
+        }
+    };
+
+    /** The session that was bound to the thread before this one. */
+    private CompilationSession previous;
+
+    /** Stream for output (tokens, ASTs, etc.); null means STDOUT. */
+    private PrintStream out;
+
+    /** Stream for diagnostics; null means STDERR. */
+    private PrintStream err;
+
+    /**
+     * Directory against which relative file names are resolved; null means
+     * the working directory of the JVM.
+     */
+    private File directory;
+
+    /** The compilation unit being compiled. */
+    private JCompilationUnit compilationUnit;
+
+    /**
+     * Class loader to use for creating in-memory representation of classes
+     * from byte streams.
+     */
+    private ByteClassLoader byteClassLoader;
+
+    /**
+     * Maps descriptors of the types declared in this compilation unit to their
+     * Type representations.
+     */
+    private ConcurrentHashMap<String, Type> types;
+
+    /** The class path for reading class files; created when first needed. */
+    private CLPath classPath;
+
+    /** The diagnostics reported in this session. */
+    private ArrayList<Diagnostic> diagnostics;
+
+    /** Statistics gathered in this session; null if not asked for. */
+    private Statistics statistics;
+
+    /**
+     * Where the things created by the parser that carry a line number (AST
+     * nodes, type names and ambiguous names) are collected; null if they are
+     * not being collected.
+     */
+    private ArrayList<Object> created;
+
+    /**
+     * Construct a session that writes to STDOUT and STDERR.
+     */
+
+    public CompilationSession() {
+        this(null, null);
+    }
+
+    /**
+     * Construct a session that writes to the specified streams.
+     *
+     * @param out
+     *            stream for output.
+     * @param err
+     *            stream for diagnostics.
+     */
+
+    public CompilationSession(PrintStream out, PrintStream err) {
+        this(out, err, null);
+    }
+
+    /**
+     * Construct a session that writes to the specified streams, and resolves
+     * relative file names against the specified directory.
+     *
+     * @param out
+     *            stream for output.
+     * @param err
+     *            stream for diagnostics.
+     * @param directory
+     *            directory for relative file names.
+     */
+
+    public CompilationSession(PrintStream out, PrintStream err, File directory) {
+        this.out = out;
+        this.err = err;
+        this.directory = directory;
+        types = new ConcurrentHashMap<String, Type>();
+        diagnostics = new ArrayList<Diagnostic>();
+        byteClassLoader = new ByteClassLoader();
+    }
+
+    /**
+     * Return the session bound to the current thread.
+     *
+     * @return the current session.
+     */
+
+    public static CompilationSession current() {
+        return current.get();
+    }
+
+    /**
+     * Bind this session to the current thread.
+     */
+
+    public void enter() {
+        previous = current.get();
+        current.set(this);
+    }
+
+    /**
+     * Unbind this session from the current thread, binding the session that
+     * was bound before it again.
+     */
+
+    public void exit() {
+        current.set(previous);
+        previous = null;
+    }
+
+    /**
+     * End this session, releasing what it holds open: the zip (jar) files its
+     * class path has looked in (see CLPath.close()).
+     */
+
+    public void close() {
+        if (classPath != null) {
+            classPath.close();
+            classPath = null;
+        }
+    }
+
+    /**
+     * Return the stream for output.
+     *
+     * @return the output stream.
+     */
+
+    public PrintStream out() {
+        return out == null ? System.out : out;
+    }
+
+    /**
+     * Return the stream for diagnostics.
+     *
+     * @return the diagnostics stream.
+     */
+
+    public PrintStream err() {
+        return err == null ? System.err : err;
+    }
+
+    /**
+     * Record the specified diagnostic, and print it to the diagnostics stream.
+     *
+     * @param diagnostic
+     *            the diagnostic.
+     */
+
+    public void report(Diagnostic diagnostic) {
+        diagnostics.add(diagnostic);
+        err().println(diagnostic);
+    }
+
+    /**
+     * Return the diagnostics reported in this session, in the order in which
+     * they were reported.
+     *
+     * @return list of diagnostics.
+     */
+
+    public ArrayList<Diagnostic> diagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Gather statistics in this session.
+     *
+     * @param statistics
+     *            where the statistics are gathered.
+     */
+
+    public void statistics(Statistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Return the statistics gathered in this session.
+     *
+     * @return the statistics, or null if they are not being gathered.
+     */
+
+    public Statistics statistics() {
+        return statistics;
+    }
+
+    /**
+     * Enter the specified compiler phase, if statistics are being gathered.
+     *
+     * @param phase
+     *            name of the phase.
+     */
+
+    public void start(String phase) {
+        if (statistics != null) {
+            statistics.start(phase);
+        }
+    }
+
+    /**
+     * Leave the specified compiler phase, if statistics are being gathered.
+     *
+     * @param phase
+     *            name of the phase.
+     */
+
+    public void stop(String phase) {
+        if (statistics != null) {
+            statistics.stop(phase);
+        }
+    }
+
+    /**
+     * Add the specified amount to the count of the specified thing, if
+     * statistics are being gathered.
+     *
+     * @param name
+     *            name of the thing counted.
+     * @param amount
+     *            amount to add.
+     */
+
+    public void count(String name, long amount) {
+        if (statistics != null) {
+            statistics.count(name, amount);
+        }
+    }
+
+    /**
+     * Collect the things carrying line numbers that are created from now on in
+     * the specified list; stop collecting them if it is null.
+     *
+     * @param created
+     *            where they are collected, or null.
+     */
+
+    public void collect(ArrayList<Object> created) {
+        this.created = created;
+    }
+
+    /**
+     * Record the creation of the specified thing carrying a line number, if
+     * such things are being collected.
+     *
+     * @param thing
+     *            an AST node, type name or ambiguous name.
+     */
+
+    public void created(Object thing) {
+        if (created != null) {
+            created.add(thing);
+        }
+    }
+
+    /**
+     * Return the directory against which relative file names are resolved.
+     *
+     * @return the directory, or null for the working directory of the JVM.
+     */
+
+    public File directory() {
+        return directory;
+    }
+
+    /**
+     * Return the file denoted by the specified name, resolving it against
+     * this session's directory if it is relative.
+     *
+     * @param name
+     *            the file name.
+     * @return the file.
+     */
+
+    public File file(String name) {
+        File file = new File(name);
+        return directory == null || file.isAbsolute() ? file : new File(
+                directory, name);
+    }
+
+    /**
+     * Return the compilation unit being compiled.
+     *
+     * @return the compilation unit.
+     */
+
+    public JCompilationUnit compilationUnit() {
+        return compilationUnit;
+    }
+
+    /**
+     * Set the compilation unit being compiled.
+     *
+     * @param compilationUnit
+     *            the compilation unit.
+     */
+
+    public void compilationUnit(JCompilationUnit compilationUnit) {
+        this.compilationUnit = compilationUnit;
+    }
+
+    /**
+     * Set a new ByteClassLoader for loading classes from byte streams.
+     */
+
+    public void initializeByteClassLoader() {
+        byteClassLoader = new ByteClassLoader();
+    }
+
+    /**
+     * Return the class loader for loading classes from byte streams.
+     *
+     * @return the class loader.
+     */
+
+    public ByteClassLoader byteClassLoader() {
+        return byteClassLoader;
+    }
+
+    /**
+     * Return the map of descriptors to the types declared in this compilation
+     * unit.
+     *
+     * @return the map of types.
+     */
+
+    public ConcurrentHashMap<String, Type> types() {
+        return types;
+    }
+
+    /**
+     * Return the class path from which class files are read in this session.
+     *
+     * @return the class path.
+     */
+
+    public CLPath classPath() {
+        if (classPath == null) {
+            classPath = new CLPath();
+        }
+        return classPath;
+    }
+
+}
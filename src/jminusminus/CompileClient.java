@@ -0,0 +1,115 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * A thin client for CompileServer. It sends the server's key (read from
+ * CompileServer.keyFile()), its working directory and command line arguments
+ * to the server listening on the given port, and copies the server's output
+ * and diagnostics to STDOUT and STDERR. If no server is listening, or there is
+ * no key file, the arguments are compiled in-process by Main instead.
+ */
+
+public class CompileClient {
+
+    /**
+     * Send a compile request to the server listening on the specified port.
+     *
+     * @param port
+     *            port of the server.
+     * @param args
+     *            command line arguments for Main.
+     * @return true if an error occurred; false otherwise.
+     * @throws IOException
+     *             if the key cannot be read or the server cannot be reached.
+     */
+
+    public static boolean compile(int port, String[] args) throws IOException {
+        String key = new String(Files.readAllBytes(CompileServer.keyFile()
+                .toPath()), "UTF-8");
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        try {
+            DataOutputStream request = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+            request.writeUTF(key);
+            request.writeUTF(new File("").getAbsolutePath());
+            request.writeInt(args.length);
+            for (String arg : args) {
+                request.writeUTF(arg);
+            }
+            request.flush();
+
+            DataInputStream response = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            boolean errorHasOccurred = response.readBoolean();
+            copy(response, System.out);
+            copy(response, System.err);
+            return errorHasOccurred;
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Copy a length-prefixed block of bytes from the response to the
+     * specified stream.
+     *
+     * @param response
+     *            the response from the server.
+     * @param out
+     *            stream to copy to.
+     * @throws IOException
+     *             if the response cannot be read.
+     */
+
+    private static void copy(DataInputStream response, OutputStream out)
+            throws IOException {
+        byte[] bytes = new byte[response.readInt()];
+        response.readFully(bytes);
+        out.write(bytes);
+        out.flush();
+    }
+
+    /**
+     * Entry point. The first argument is the port of the server; the rest are
+     * passed on to Main.
+     *
+     * @param args
+     *            command line arguments.
+     */
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: java jminusminus.CompileClient "
+                    + "<port> <arguments for jminusminus.Main>");
+            return;
+        }
+        String[] mainArgs = new String[args.length - 1];
+        System.arraycopy(args, 1, mainArgs, 0, mainArgs.length);
+        try {
+            compile(Integer.parseInt(args[0]), mainArgs);
+        } catch (ConnectException e) {
+            // No server; compile in this JVM
+            Main.main(mainArgs);
+        } catch (NoSuchFileException e) {
+            // No key, so no server started; compile in this JVM
+            Main.main(mainArgs);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,324 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * A long-lived j-- compiler. The server listens on a loopback socket for
+ * compile requests from CompileClient, and runs each through Main, so that
+ * the JIT-compiled compiler, the loaded classes and the Type cache for
+ * imported types stay warm from one request to the next.
+ *
+ * The server runs requests with all the rights of the user who started it,
+ * and the loopback interface is open to every user of the machine, so the
+ * server only serves clients that can show they are its user: on starting,
+ * it makes a random key and writes it to a file (see keyFile()) that only its
+ * user can read, and a request must start with that key. A request with any
+ * other key is refused without being read further.
+ *
+ * A request is the key, then the working directory of the client, followed by
+ * the command line arguments for Main; relative file names are resolved
+ * against that directory. The response is whether an error occurred, followed by what the
+ * compiler wrote to its output and diagnostics streams. All strings are
+ * written with DataOutputStream.writeUTF(). Requests are served one at a
+ * time, since the compiler options are global; a single request may still
+ * compile its files concurrently using -j. So that a client that connects and
+ * then stalls cannot hold up the requests after it, a request must be read in
+ * full within READ_TIMEOUT milliseconds, and may have at most MAX_ARGUMENTS
+ * arguments.
+ */
+
+public class CompileServer {
+
+    /** Port on which the server listens by default. */
+    public static final int DEFAULT_PORT = 4711;
+
+    /** Milliseconds within which a request must be read. */
+    private static final int READ_TIMEOUT = 10000;
+
+    /** Largest number of arguments a request may have. */
+    private static final int MAX_ARGUMENTS = 65536;
+
+    /** Number of random bytes in a key. */
+    private static final int KEY_BYTES = 32;
+
+    /** The socket on which the server listens. */
+    private ServerSocket serverSocket;
+
+    /** The file the key is written to. */
+    private File keyFile;
+
+    /** The key that requests must start with. */
+    private byte[] key;
+
+    /**
+     * Construct a server listening on the specified port of the loopback
+     * interface, whose key is written to the specified file.
+     *
+     * @param port
+     *            the port.
+     * @param keyFile
+     *            the file to write the key to; it is made afresh, readable
+     *            and writable only by the user running the server.
+     * @throws IOException
+     *             if the socket cannot be opened, or the key written.
+     */
+
+    public CompileServer(int port, File keyFile) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress
+                .getLoopbackAddress());
+        this.keyFile = keyFile;
+        try {
+            key = newKey();
+            writeKey(keyFile, key);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+        keyFile.deleteOnExit();
+    }
+
+    /**
+     * Return the file that the key of the server is kept in, unless another
+     * is asked for: the file named by the JMINUSMINUS_KEY environment
+     * variable, if it is set, or .j--server.key in the home directory of the
+     * user.
+     *
+     * @return the key file.
+     */
+
+    public static File keyFile() {
+        String name = System.getenv("JMINUSMINUS_KEY");
+        if (name != null && !name.equals("")) {
+            return new File(name);
+        }
+        return new File(System.getProperty("user.home"), ".j--server.key");
+    }
+
+    /**
+     * Return the port on which the server listens.
+     *
+     * @return the port.
+     */
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Serve requests until the server socket is closed.
+     */
+
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            Socket socket = null;
+            try {
+                socket = serverSocket.accept();
+                serve(socket);
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("Error: " + e.getMessage());
+                }
+            } finally {
+                if (socket != null) {
+                    try {
+                        socket.close();
+                    } catch (IOException e) {
+                        // Nothing to do
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop serving requests.
+     */
+
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Nothing to do
+        }
+        keyFile.delete();
+    }
+
+    /**
+     * Read a request from the specified socket, compile it, and write back
+     * the response.
+     *
+     * @param socket
+     *            the connection to the client.
+     * @throws IOException
+     *             if the request cannot be read (in time), is malformed or
+     *             has the wrong key, or the response cannot be written.
+     */
+
+    private void serve(Socket socket) throws IOException {
+        socket.setSoTimeout(READ_TIMEOUT);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                socket.getInputStream()));
+        if (!MessageDigest.isEqual(key, in.readUTF().getBytes("UTF-8"))) {
+            throw new IOException("request with a wrong key refused");
+        }
+        File directory = new File(in.readUTF());
+        int count = in.readInt();
+        if (count < 0 || count > MAX_ARGUMENTS) {
+            throw new IOException("bad request: " + count + " arguments");
+        }
+        String[] args = new String[count];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        boolean errorHasOccurred = compile(args, directory, new PrintStream(
+                out, true), new PrintStream(err, true));
+
+        DataOutputStream response = new DataOutputStream(
+                new BufferedOutputStream(socket.getOutputStream()));
+        response.writeBoolean(errorHasOccurred);
+        response.writeInt(out.size());
+        out.writeTo(response);
+        response.writeInt(err.size());
+        err.writeTo(response);
+        response.flush();
+    }
+
+    /**
+     * Return a new random key, as the (ASCII) bytes of its hexadecimal
+     * digits.
+     *
+     * @return the key.
+     */
+
+    private static byte[] newKey() {
+        byte[] bytes = new byte[KEY_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder key = new StringBuilder();
+        for (byte b : bytes) {
+            key.append(Character.forDigit((b >> 4) & 0xf, 16));
+            key.append(Character.forDigit(b & 0xf, 16));
+        }
+        return key.toString().getBytes();
+    }
+
+    /**
+     * Write the specified key to the specified file, made afresh so that
+     * only the current user may read or write it.
+     *
+     * @param file
+     *            the file.
+     * @param key
+     *            the key.
+     * @throws IOException
+     *             if the file cannot be made or written.
+     */
+
+    private static void writeKey(File file, byte[] key) throws IOException {
+        Path path = file.toPath();
+        Files.deleteIfExists(path);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains(
+                "posix")) {
+            Files.createFile(path, PosixFilePermissions
+                    .asFileAttribute(PosixFilePermissions
+                            .fromString("rw-------")));
+        } else {
+            Files.createFile(path);
+            file.setReadable(false, false);
+            file.setWritable(false, false);
+            file.setReadable(true, true);
+            file.setWritable(true, true);
+        }
+        Files.write(path, key);
+    }
+
+    /**
+     * Run Main with the specified arguments in a compilation session that
+     * resolves file names against the specified directory and writes to the
+     * specified streams. A compiler crash is reported on the diagnostics
+     * stream, rather than taking the server down with it.
+     *
+     * @param args
+     *            command line arguments for Main.
+     * @param directory
+     *            working directory of the client.
+     * @param out
+     *            stream for output.
+     * @param err
+     *            stream for diagnostics.
+     * @return true if an error occurred; false otherwise.
+     */
+
+    private static boolean compile(String[] args, File directory,
+            PrintStream out, PrintStream err) {
+        CompilationSession session = new CompilationSession(out, err,
+                directory);
+        session.enter();
+        try {
+            Main.main(args);
+            return Main.errorHasOccurred();
+        } catch (Throwable e) {
+            e.printStackTrace(err);
+            return true;
+        } finally {
+            session.exit();
+            session.close();
+        }
+    }
+
+    /**
+     * Entry point.
+     *
+     * @param args
+     *            command line arguments.
+     */
+
+    public static void main(String[] args) {
+        int port = DEFAULT_PORT;
+        File keyFile = keyFile();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-p") && (i + 1) < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-k") && (i + 1) < args.length) {
+                keyFile = new File(args[++i]);
+            } else {
+                System.out.println("Usage: java jminusminus.CompileServer "
+                        + "[-p <port>] [-k <file>]\n"
+                        + "  -p <port> Port to listen on; " + "default = "
+                        + DEFAULT_PORT + "\n"
+                        + "  -k <file> File to write the key to; default = "
+                        + keyFile);
+                return;
+            }
+        }
+        try {
+            CompileServer server = new CompileServer(port, keyFile);
+            System.out.println("j-- server listening on port "
+                    + server.port());
+            server.serve();
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+}
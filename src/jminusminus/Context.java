@@ -2,6 +2,7 @@
 
 package jminusminus;
 
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Set;
@@ -65,10 +66,33 @@ class Context {
 
     protected Context(Context surrounding, ClassContext classContext,
             CompilationUnitContext compilationUnitContext) {
+        this(surrounding, classContext, compilationUnitContext,
+                new HashMap<String, IDefn>());
+    }
+
+    /**
+     * Construct a Context whose names are mapped to their definitions in the
+     * specified map.
+     * 
+     * @param surrounding
+     *            the surrounding context (scope).
+     * @param classContext
+     *            the surrounding class context.
+     * @param compilationUnitContext
+     *            the compilation unit context (for the whole source program or
+     *            file).
+     * @param entries
+     *            map of names to definitions; null for a context that keeps
+     *            its names otherwise.
+     */
+
+    protected Context(Context surrounding, ClassContext classContext,
+            CompilationUnitContext compilationUnitContext,
+            Map<String, IDefn> entries) {
         this.surroundingContext = surrounding;
         this.classContext = classContext;
         this.compilationUnitContext = compilationUnitContext;
-        this.entries = new HashMap<String, IDefn>();
+        this.entries = entries;
     }
 
     /**
@@ -83,7 +107,7 @@ class Context {
 
     public void addEntry(int line, String name, IDefn definition) {
         if (entries.containsKey(name)) {
-            JAST.compilationUnit.reportSemanticError(line, "redefining name: "
+            JAST.compilationUnit().reportSemanticError(line, "redefining name: "
                     + name);
         } else {
             entries.put(name, definition);
@@ -305,6 +329,16 @@ class ClassContext extends Context {
  * offsets from the base of the current method's stack frame; this is done
  * during anaysis. The definitions for local variables record these offsets. The
  * offsets are used in code generation.
+ * 
+ * The names declared in the local contexts of a method are kept in a single
+ * SymbolTable, which a local context nested in another shares, rather than in
+ * a map for each context; so a name is looked up with one probe of the table,
+ * however deeply the context is nested, and a block allocates no map. Analysis
+ * is done a context at a time, each nested one in turn: a context is live
+ * from when it is made until analysis goes back to a context that encloses
+ * it, and the table holds the names declared in the live contexts. Names are
+ * still looked up in a context that is no longer live, as they would be in a
+ * map for each context, in the declarations each context keeps.
  */
 
 class LocalContext extends Context {
@@ -312,6 +346,24 @@ class LocalContext extends Context {
     /** Next offset for a local variable. */
     protected int offset;
 
+    /** The table of names declared in this context and those it is in. */
+    private SymbolTable table;
+
+    /**
+     * Depth of this context in the table: the number of local contexts it is
+     * nested in.
+     */
+    private int depth;
+
+    /** Was this context made in one that was no longer live? */
+    private boolean isDetached;
+
+    /**
+     * The last declaration in this context, which links to those before it;
+     * null if there are none.
+     */
+    private LocalDeclaration last;
+
     /**
      * Construct a local context. A local context is constructed for each block.
      * 
@@ -321,10 +373,81 @@ class LocalContext extends Context {
 
     public LocalContext(Context surrounding) {
         super(surrounding, surrounding.classContext(), surrounding
-                .compilationUnitContext());
+                .compilationUnitContext(), null);
         offset = (surrounding instanceof LocalContext) ? ((LocalContext) surrounding)
                 .offset()
                 : 0;
+        if (surrounding instanceof LocalContext) {
+            LocalContext local = (LocalContext) surrounding;
+            table = local.table;
+            depth = local.depth + 1;
+            if (local.isLive()) {
+                table.leaveTo(local.depth);
+                table.enter(this);
+            } else {
+                isDetached = true;
+            }
+        } else {
+            table = new SymbolTable(surrounding);
+            depth = 0;
+            table.enter(this);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public void addEntry(int line, String name, IDefn definition) {
+        if (declaredHere(name) != null) {
+            JAST.compilationUnit().reportSemanticError(line, "redefining name: "
+                    + name);
+            return;
+        }
+        if (isLive()) {
+            table.leaveTo(depth);
+            last = table.declare(name, definition, this, last);
+        } else {
+            last = new LocalDeclaration(name, definition, this, null, last);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public IDefn lookup(String name) {
+        if (isLive()) {
+            table.leaveTo(depth);
+            LocalDeclaration declaration = table.lookup(name);
+            if (declaration != null) {
+                return declaration.definition;
+            }
+        } else {
+            // Search the contexts out from this one, as the table no longer
+            // holds their names
+            Context context = this;
+            while (context instanceof LocalContext) {
+                IDefn iDefn = ((LocalContext) context).declared(name);
+                if (iDefn != null) {
+                    return iDefn;
+                }
+                context = context.surroundingContext;
+            }
+        }
+        Context outer = table.outer();
+        return outer == null ? null : outer.lookup(name);
+    }
+
+    /**
+     * The names declared in this context, in the order in which a HashMap of
+     * them would list them.
+     * 
+     * @return the set of declared names.
+     */
+
+    public Set<String> names() {
+        return entries().keySet();
     }
 
     /**
@@ -356,22 +479,92 @@ class LocalContext extends Context {
         p.println("<LocalContext>");
         p.indentRight();
         p.println("<Entries>");
-        if (entries != null) {
-            p.indentRight();
-            for (String key : names()) {
-                IDefn defn = entries.get(key);
-                if (defn instanceof LocalVariableDefn) {
-                    p.printf("<Entry name=\"%s\" " + "offset=\"%d\"/>\n", key,
-                            ((LocalVariableDefn) defn).offset());
-                }
+        Map<String, IDefn> entries = entries();
+        p.indentRight();
+        for (String key : entries.keySet()) {
+            IDefn defn = entries.get(key);
+            if (defn instanceof LocalVariableDefn) {
+                p.printf("<Entry name=\"%s\" " + "offset=\"%d\"/>\n", key,
+                        ((LocalVariableDefn) defn).offset());
             }
-            p.indentLeft();
         }
+        p.indentLeft();
         p.println("</Entries>");
         p.indentLeft();
         p.println("</LocalContext>");
     }
 
+    /**
+     * Is this context live, so that the table holds its names?
+     * 
+     * @return true or false.
+     */
+
+    private boolean isLive() {
+        return !isDetached && table.scope(depth) == this;
+    }
+
+    /**
+     * Return the definition of the specified name in this context (and not
+     * those it is in), from the table if this context is live.
+     * 
+     * @param name
+     *            the name.
+     * @return the definition, or null if the name is not declared here.
+     */
+
+    private IDefn declaredHere(String name) {
+        if (isLive()) {
+            table.leaveTo(depth);
+            LocalDeclaration declaration = table.lookup(name);
+            return declaration != null && declaration.context == this
+                    ? declaration.definition : null;
+        }
+        return declared(name);
+    }
+
+    /**
+     * Return the definition of the specified name in this context (and not
+     * those it is in), from its own declarations.
+     * 
+     * @param name
+     *            the name.
+     * @return the definition, or null if the name is not declared here.
+     */
+
+    private IDefn declared(String name) {
+        for (LocalDeclaration declaration = last; declaration != null;
+                declaration = declaration.previous) {
+            if (declaration.name.equals(name)) {
+                return declaration.definition;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return a map of the names declared in this context to their
+     * definitions, made by adding them in the order in which they were
+     * declared, so that it lists them as a map for the context would have.
+     * 
+     * @return the map.
+     */
+
+    private Map<String, IDefn> entries() {
+        ArrayList<LocalDeclaration> declarations =
+                new ArrayList<LocalDeclaration>();
+        for (LocalDeclaration declaration = last; declaration != null;
+                declaration = declaration.previous) {
+            declarations.add(declaration);
+        }
+        Map<String, IDefn> entries = new HashMap<String, IDefn>();
+        for (int i = declarations.size() - 1; i >= 0; i--) {
+            LocalDeclaration declaration = declarations.get(i);
+            entries.put(declaration.name, declaration.definition);
+        }
+        return entries;
+    }
+
 }
 
 /**
@@ -461,3 +654,198 @@ class MethodContext extends LocalContext {
     }
 
 }
+
+/**
+ * The names declared in a nest of local contexts (those of a method), and so
+ * in scope at some point in its analysis: a single map of each name to its
+ * innermost declaration in the live contexts, the contexts themselves,
+ * outermost first, and a log of the declarations made in them, by which a
+ * declaration is undone (and any it hides restored) when its context is left.
+ */
+
+class SymbolTable {
+
+    /** The context the outermost of the local contexts is in. */
+    private Context outer;
+
+    /** The innermost declaration of each name in the live contexts. */
+    private HashMap<String, LocalDeclaration> declarations;
+
+    /** The declarations in the live contexts, in the order made. */
+    private ArrayList<LocalDeclaration> log;
+
+    /** The live contexts, outermost first. */
+    private ArrayList<LocalContext> scopes;
+
+    /** For each live context, the size the log had when it was entered. */
+    private int[] marks;
+
+    /**
+     * Construct an empty SymbolTable for the local contexts in the specified
+     * context.
+     * 
+     * @param outer
+     *            the context the outermost of the local contexts is in.
+     */
+
+    public SymbolTable(Context outer) {
+        this.outer = outer;
+        declarations = new HashMap<String, LocalDeclaration>();
+        log = new ArrayList<LocalDeclaration>();
+        scopes = new ArrayList<LocalContext>();
+        marks = new int[16];
+    }
+
+    /**
+     * Return the context the outermost of the local contexts is in.
+     * 
+     * @return the context.
+     */
+
+    public Context outer() {
+        return outer;
+    }
+
+    /**
+     * Return the live context at the specified depth.
+     * 
+     * @param depth
+     *            the depth.
+     * @return the context, or null if none is live at that depth.
+     */
+
+    public LocalContext scope(int depth) {
+        return depth < scopes.size() ? scopes.get(depth) : null;
+    }
+
+    /**
+     * Enter the specified context, nested in the innermost live one.
+     * 
+     * @param context
+     *            the context.
+     */
+
+    public void enter(LocalContext context) {
+        int depth = scopes.size();
+        if (depth == marks.length) {
+            int[] grown = new int[2 * depth];
+            System.arraycopy(marks, 0, grown, 0, depth);
+            marks = grown;
+        }
+        marks[depth] = log.size();
+        scopes.add(context);
+    }
+
+    /**
+     * Leave the live contexts deeper than the specified depth, undoing the
+     * declarations made in them.
+     * 
+     * @param depth
+     *            depth of the innermost context to stay live.
+     */
+
+    public void leaveTo(int depth) {
+        if (scopes.size() <= depth + 1) {
+            return;
+        }
+        int mark = marks[depth + 1];
+        for (int i = log.size() - 1; i >= mark; i--) {
+            LocalDeclaration declaration = log.remove(i);
+            if (declaration.hidden == null) {
+                declarations.remove(declaration.name);
+            } else {
+                declarations.put(declaration.name, declaration.hidden);
+            }
+        }
+        for (int i = scopes.size() - 1; i > depth; i--) {
+            scopes.remove(i);
+        }
+    }
+
+    /**
+     * Declare the specified name in the specified context, which is the
+     * innermost live one.
+     * 
+     * @param name
+     *            the name.
+     * @param definition
+     *            its definition.
+     * @param context
+     *            the context.
+     * @param previous
+     *            the declaration before it in the context, or null.
+     * @return the declaration.
+     */
+
+    public LocalDeclaration declare(String name, IDefn definition,
+            LocalContext context, LocalDeclaration previous) {
+        LocalDeclaration declaration = new LocalDeclaration(name, definition,
+                context, declarations.get(name), previous);
+        declarations.put(name, declaration);
+        log.add(declaration);
+        return declaration;
+    }
+
+    /**
+     * Return the innermost declaration of the specified name in the live
+     * contexts.
+     * 
+     * @param name
+     *            the name.
+     * @return the declaration, or null if there is none.
+     */
+
+    public LocalDeclaration lookup(String name) {
+        return declarations.get(name);
+    }
+
+}
+
+/**
+ * A declaration of a name in a local context, with the one in an enclosing
+ * context that it hides, and the one before it in its own context.
+ */
+
+class LocalDeclaration {
+
+    /** The name declared. */
+    public String name;
+
+    /** Its definition. */
+    public IDefn definition;
+
+    /** The context it is declared in. */
+    public LocalContext context;
+
+    /** The declaration it hides; null if there is none. */
+    public LocalDeclaration hidden;
+
+    /** The declaration before it in its context; null if there is none. */
+    public LocalDeclaration previous;
+
+    /**
+     * Construct a declaration.
+     * 
+     * @param name
+     *            the name declared.
+     * @param definition
+     *            its definition.
+     * @param context
+     *            the context it is declared in.
+     * @param hidden
+     *            the declaration it hides, or null.
+     * @param previous
+     *            the declaration before it in its context, or null.
+     */
+
+    public LocalDeclaration(String name, IDefn definition,
+            LocalContext context, LocalDeclaration hidden,
+            LocalDeclaration previous) {
+        this.name = name;
+        this.definition = definition;
+        this.context = context;
+        this.hidden = hidden;
+        this.previous = previous;
+    }
+
+}
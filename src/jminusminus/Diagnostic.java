@@ -0,0 +1,117 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+/**
+ * An error reported by the compiler: the phase that found it, where in the
+ * source it was found, and the message. Diagnostics are recorded by the
+ * current CompilationSession as they are reported.
+ */
+
+public class Diagnostic {
+
+    /**
+     * The phase of the compiler that reports a diagnostic.
+     */
+
+    public enum Kind {
+        /** Reported by the scanner. */
+        LEXICAL,
+
+        /** Reported by the parser. */
+        SYNTAX,
+
+        /** Reported during pre-analysis and analysis. */
+        SEMANTIC,
+
+        /** Reported while emitting JVM or SPIM code. */
+        EMITTER
+    }
+
+    /** The phase that reported the diagnostic. */
+    private Kind kind;
+
+    /** Name of the source file; null if not specific to a source file. */
+    private String fileName;
+
+    /** Line in the source file; 0 if not specific to a line. */
+    private int line;
+
+    /** The message. */
+    private String message;
+
+    /**
+     * Construct a Diagnostic.
+     *
+     * @param kind
+     *            the phase that reported the diagnostic.
+     * @param fileName
+     *            name of the source file, or null.
+     * @param line
+     *            line in the source file, or 0.
+     * @param message
+     *            the message.
+     */
+
+    public Diagnostic(Kind kind, String fileName, int line, String message) {
+        this.kind = kind;
+        this.fileName = fileName;
+        this.line = line;
+        this.message = message;
+    }
+
+    /**
+     * Return the phase that reported the diagnostic.
+     *
+     * @return the kind of diagnostic.
+     */
+
+    public Kind kind() {
+        return kind;
+    }
+
+    /**
+     * Return the name of the source file.
+     *
+     * @return the file name, or null.
+     */
+
+    public String fileName() {
+        return fileName;
+    }
+
+    /**
+     * Return the line in the source file.
+     *
+     * @return the line number, or 0.
+     */
+
+    public int line() {
+        return line;
+    }
+
+    /**
+     * Return the message.
+     *
+     * @return the message.
+     */
+
+    public String message() {
+        return message;
+    }
+
+    /**
+     * Return the diagnostic in the form in which the compiler prints it,
+     * fileName:line: message.
+     *
+     * @return the diagnostic as a string.
+     */
+
+    public String toString() {
+        if (fileName == null) {
+            return message;
+        }
+        return String.format("%s:%d: %s", fileName, line, message);
+    }
+
+}
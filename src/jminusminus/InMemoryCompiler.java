@@ -0,0 +1,129 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Programmatic interface to the j-- compiler (with the hand-written
+ * front-end), for compiling source held in memory. Unlike Main, it does no
+ * file I/O: the source is given as characters or bytes, the generated classes
+ * are returned as CLFile objects and class file bytes, and the errors as a
+ * list of Diagnostic objects rather than being printed.
+ * 
+ * Each compilation runs in a CompilationSession of its own, so the compiler
+ * may be invoked from several threads at once.
+ */
+
+public class InMemoryCompiler {
+
+    /**
+     * Compile the specified source.
+     * 
+     * @param fileName
+     *            the name by which the source is known in diagnostics.
+     * @param source
+     *            the source.
+     * @return the result of the compilation.
+     */
+
+    public static CompilationResult compile(String fileName,
+            CharSequence source) {
+        return compile(fileName, new StringReader(source.toString()));
+    }
+
+    /**
+     * Compile the source in the specified bytes, decoded using the specified
+     * character set.
+     * 
+     * @param fileName
+     *            the name by which the source is known in diagnostics.
+     * @param source
+     *            the source; its bytes from the current position up to the
+     *            limit are compiled. The position is left unchanged.
+     * @param charset
+     *            the character set of the source.
+     * @return the result of the compilation.
+     */
+
+    public static CompilationResult compile(String fileName, ByteBuffer source,
+            Charset charset) {
+        return compile(fileName, charset.decode(source.duplicate()));
+    }
+
+    /**
+     * Compile the source in the specified bytes, decoded using the specified
+     * character set.
+     * 
+     * @param fileName
+     *            the name by which the source is known in diagnostics.
+     * @param source
+     *            the source.
+     * @param charset
+     *            the character set of the source.
+     * @return the result of the compilation.
+     */
+
+    public static CompilationResult compile(String fileName, byte[] source,
+            Charset charset) {
+        return compile(fileName, ByteBuffer.wrap(source), charset);
+    }
+
+    /**
+     * Scan, parse, pre-analyze, analyze and generate JVM code for the source
+     * read from the specified reader, as Main.compile() does: the declarations
+     * that parsed cleanly are analyzed after syntax errors too, analysis is
+     * skipped after errors in pre-analysis, and no code is generated after
+     * any error.
+     * 
+     * @param fileName
+     *            the name by which the source is known in diagnostics.
+     * @param source
+     *            reader for the source.
+     * @return the result of the compilation.
+     */
+
+    private static CompilationResult compile(String fileName, Reader source) {
+        PrintStream discard = new PrintStream(new OutputStream() {
+            public void write(int b) {
+            }
+        });
+        CompilationSession session = new CompilationSession(discard, discard);
+        session.enter();
+        try {
+            // Parse input
+            LookaheadScanner scanner = new LookaheadScanner(fileName, source);
+            Parser parser = new Parser(scanner);
+            JCompilationUnit ast = parser.compilationUnit();
+            boolean errorHasOccurred = parser.errorHasOccurred()
+                    || scanner.errorHasOccured();
+
+            // Do pre-analysis and analysis, after syntax errors too, as
+            // Main.compile() does: what the parser found them in is left
+            // out of analysis (see Parser.recovered())
+            ast.preAnalyze();
+            if (!ast.errorHasOccurred()) {
+                ast.analyze(null);
+            }
+            errorHasOccurred |= ast.errorHasOccurred();
+
+            // Generate JVM code, in memory only
+            if (!errorHasOccurred) {
+                CLEmitter clEmitter = new CLEmitter(false);
+                ast.codegen(clEmitter);
+                errorHasOccurred = clEmitter.errorHasOccurred();
+            }
+            return new CompilationResult(errorHasOccurred, session
+                    .diagnostics(), errorHasOccurred ? null : ast.clFiles());
+        } finally {
+            session.exit();
+            session.close();
+        }
+    }
+
+}
@@ -0,0 +1,660 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+
+/**
+ * A parser for a source that is being edited, as in an editor or IDE, which
+ * re-parses as little of the source as it can after each edit.
+ *
+ * The source is parsed in full to begin with, and the extent in the source of
+ * every type declaration and member declaration is recorded, along with the
+ * diagnostics found in it; recovery from syntax errors stops at declaration
+ * boundaries, so this is done whether the source has errors or not. After an
+ * edit, only the smallest member declaration (or, failing that, type
+ * declaration) that encloses the edit is scanned and parsed again, and the AST
+ * for it is spliced into the AST of the compilation unit in place of the old
+ * one. The re-parse is kept only if it is sure to be what a full parse would
+ * give (see reparse()); the enclosing type declaration is tried next, and then
+ * the whole source. So the AST and the diagnostics after an edit are the same
+ * as a full parse of the edited source would give. The scanner reports
+ * lexical errors as it scans ahead of the parser, so they cannot be pinned to
+ * a declaration; a source with any is parsed in full after each edit.
+ *
+ * The declarations after an edit are moved by the number of characters and
+ * lines inserted or removed, but the line numbers in their ASTs and
+ * diagnostics are moved only when the AST or the diagnostics are next asked
+ * for, and then all the moves since are made at once. Until then, an edit
+ * takes time in proportion to the number of declarations after it, rather
+ * than to the size of their ASTs.
+ *
+ * The AST is a parse tree that must not be analyzed in place, since analysis
+ * rewrites it; the parsing, and the diagnostics, are done in a session of the
+ * parser's own.
+ */
+
+public class IncrementalParser {
+
+    /** Name of the source file. */
+    private String fileName;
+
+    /**
+     * The source, with all the edits so far, in the first sourceLength
+     * characters; the scanners read it in place.
+     */
+    private char[] source;
+
+    /** Number of characters in the source. */
+    private int sourceLength;
+
+    /** AST for the source. */
+    private JCompilationUnit compilationUnit;
+
+    /**
+     * Extent of the whole source, in which the extents of its type
+     * declarations are recorded; null if the source has lexical errors.
+     */
+    private DeclarationExtent root;
+
+    /**
+     * Whether an error was found in the source, if it has lexical errors (if
+     * not, its extent tells).
+     */
+    private boolean errorHasOccurred;
+
+    /**
+     * The diagnostics for the source, if it has lexical errors (if not, they
+     * are gathered from its extent).
+     */
+    private ArrayList<Diagnostic> diagnostics;
+
+    /**
+     * Construct an IncrementalParser for the specified source, and parse it.
+     *
+     * @param fileName
+     *            the name by which the source is known in diagnostics.
+     * @param source
+     *            the source.
+     */
+
+    public IncrementalParser(String fileName, String source) {
+        this.fileName = fileName;
+        this.source = source.toCharArray();
+        sourceLength = this.source.length;
+        parse();
+    }
+
+    /**
+     * Return the AST for the source as it is after the edits so far.
+     *
+     * @return the AST.
+     */
+
+    public JCompilationUnit compilationUnit() {
+        if (root != null) {
+            flush(root);
+        }
+        return compilationUnit;
+    }
+
+    /**
+     * Return the source as it is after the edits so far.
+     *
+     * @return the source.
+     */
+
+    public String source() {
+        return new String(source, 0, sourceLength);
+    }
+
+    /**
+     * Has a parser error occurred in the source?
+     *
+     * @return true or false.
+     */
+
+    public boolean errorHasOccurred() {
+        return root == null ? errorHasOccurred : root.errors > 0;
+    }
+
+    /**
+     * Return the diagnostics for the source.
+     *
+     * @return list of diagnostics.
+     */
+
+    public ArrayList<Diagnostic> diagnostics() {
+        if (root == null) {
+            return diagnostics;
+        }
+        flush(root);
+        ArrayList<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+        addDiagnostics(root, diagnostics);
+        return diagnostics;
+    }
+
+    /**
+     * Return the AST for the source as it is after the edits so far, printed
+     * as -p prints it.
+     *
+     * @return the printed AST.
+     */
+
+    public String ast() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes);
+        CompilationSession session = new CompilationSession(out, out);
+        session.enter();
+        try {
+            PrettyPrinter p = new PrettyPrinter(2, true);
+            compilationUnit().writeToStdOut(p);
+            p.flush();
+        } finally {
+            session.exit();
+        }
+        return bytes.toString();
+    }
+
+    /**
+     * Replace the specified number of characters at the specified offset in
+     * the source with the specified text, and re-parse what is needed.
+     *
+     * @param offset
+     *            offset of the first character replaced.
+     * @param length
+     *            number of characters replaced; 0 for an insertion.
+     * @param text
+     *            the text replacing them; empty for a deletion.
+     */
+
+    public void edit(int offset, int length, String text) {
+        if (offset < 0 || length < 0 || offset + length > sourceLength) {
+            throw new IndexOutOfBoundsException("Edit: " + offset + ", "
+                    + length + ", Length: " + sourceLength);
+        }
+
+        // Count the lines in the replaced and replacing text, along with a
+        // character either side so that a \r\n split or joined counts right
+        int from = Math.max(offset - 1, 0);
+        int oldLines = newLines(from, Math.min(offset + length + 1,
+                sourceLength));
+        int delta = text.length() - length;
+        if (sourceLength + delta > source.length) {
+            char[] grown = new char[2 * (sourceLength + delta)];
+            System.arraycopy(source, 0, grown, 0, sourceLength);
+            source = grown;
+        }
+        System.arraycopy(source, offset + length, source, offset
+                + text.length(), sourceLength - offset - length);
+        text.getChars(0, text.length(), source, offset);
+        sourceLength += delta;
+        int lineDelta = newLines(from, Math.min(offset + text.length() + 1,
+                sourceLength))
+                - oldLines;
+
+        if (root != null) {
+            DeclarationExtent type = enclosing(root, offset, length);
+            if (type != null) {
+                pushDown(type);
+                DeclarationExtent member = type.declaration == null ? null
+                        : enclosing(type, offset, length);
+                if (member != null && reparse(member, delta, lineDelta)) {
+                    return;
+                }
+                if (reparse(type, delta, lineDelta)) {
+                    return;
+                }
+            }
+        }
+        parse();
+    }
+
+    /**
+     * Parse the whole source.
+     */
+
+    private void parse() {
+        CompilationSession session = session();
+        session.enter();
+        try {
+            DeclarationExtent extent = new DeclarationExtent(null, 0, 1);
+            session.collect(extent.created);
+            LookaheadScanner scanner = new LookaheadScanner(fileName, source,
+                    0, sourceLength, 1);
+            Parser parser = new Parser(scanner);
+            parser.recordExtents(extent);
+            compilationUnit = parser.compilationUnit();
+            extent.errors = parser.errors();
+            errorHasOccurred = parser.errorHasOccurred()
+                    || scanner.errorHasOccured();
+            diagnostics = session.diagnostics();
+            root = scanner.errorHasOccured() ? null : extent;
+        } finally {
+            session.collect(null);
+            session.exit();
+        }
+    }
+
+    /**
+     * Re-parse the specified declaration, which encloses an edit that moved
+     * what follows it by the specified numbers of characters and lines. If the
+     * re-parse is what a full parse would give, splice it in, and move what
+     * follows.
+     *
+     * The declaration is parsed from its start as the next one in its type (or
+     * compilation unit) would be, looking on into what follows it as far as
+     * the parser wants, so the re-parse is what a full parse would give if the
+     * parser was in the same state at its start, and if it ends where the
+     * declaration did. The declarations before it must not have looked into
+     * it in being parsed, since they might be parsed differently now.
+     *
+     * @param declared
+     *            extent of the declaration, from before the edit.
+     * @param delta
+     *            number of characters inserted (or, if negative, removed).
+     * @param lineDelta
+     *            number of lines inserted (or, if negative, removed).
+     * @return true if the declaration was re-parsed, false if the re-parse
+     *         might not be what a full parse would give.
+     */
+
+    private boolean reparse(DeclarationExtent declared, int delta,
+            int lineDelta) {
+        DeclarationExtent parent = declared.parent;
+        int index = parent.members.indexOf(declared);
+        if (!declared.isRecoveredAtStart) {
+            return false;
+        }
+        for (int i = 0; i < index; i++) {
+            DeclarationExtent before = parent.members.get(i);
+            if (before.end + before.lookahead > declared.start) {
+                return false;
+            }
+        }
+        DeclarationExtent extent = new DeclarationExtent(null, declared.start,
+                declared.line);
+        CompilationSession session = session();
+        session.enter();
+        try {
+            session.collect(extent.created);
+            LookaheadScanner scanner = new LookaheadScanner(fileName, source,
+                    declared.start, sourceLength, declared.line);
+            Parser parser = new Parser(scanner);
+            parser.recordExtents(extent);
+
+            // Where a full parse would not take what now starts here for the
+            // next declaration, neither can the re-parse; and the compilation
+            // unit takes its line from its first token
+            TokenKind kind = scanner.kind();
+            if (kind == TokenKind.EOF || parent != root
+                    && kind == TokenKind.RCURLY || parent == root
+                    && index == 0
+                    && (kind == TokenKind.PACKAGE || kind == TokenKind.IMPORT
+                    || scanner.line() != declared.line)) {
+                return false;
+            }
+            if (parent == root) {
+                parser.recoveredTypeDeclaration();
+            } else if (parent.declaration instanceof JInterfaceDeclaration) {
+                parser.recoveredInterfaceMember();
+            } else {
+                parser.recoveredClassMember();
+            }
+            if (scanner.errorHasOccured()
+                    || extent.members.get(0).end != declared.end + delta) {
+                return false;
+            }
+        } finally {
+            session.collect(null);
+            session.exit();
+        }
+
+        // Splice the new declaration in, in place of the old one, either of
+        // which may have been left out of the AST for errors
+        DeclarationExtent reparsed = extent.members.get(0);
+        reparsed.parent = parent;
+        parent.members.set(index, reparsed);
+        int at = 0;
+        for (int i = 0; i < index; i++) {
+            if (parent.members.get(i).declaration != null) {
+                at++;
+            }
+        }
+        if (parent == root) {
+            replace(compilationUnit.typeDeclarations(), at,
+                    declared.declaration, reparsed.declaration);
+        } else {
+            replace(((JTypeDecl) parent.declaration).members(), at,
+                    (JMember) declared.declaration,
+                    (JMember) reparsed.declaration);
+        }
+        for (DeclarationExtent enclosing = parent; enclosing != null;
+                enclosing = enclosing.parent) {
+            enclosing.errors += reparsed.errors - declared.errors;
+        }
+
+        // Move what follows it
+        for (int i = index + 1; i < parent.members.size(); i++) {
+            move(parent.members.get(i), delta, lineDelta);
+        }
+        shiftLines(parent.diagnostics, parent.header, lineDelta);
+        if (parent != root) {
+            parent.end += delta;
+            for (int i = root.members.indexOf(parent) + 1; i < root.members
+                    .size(); i++) {
+                move(root.members.get(i), delta, lineDelta);
+            }
+            shiftLines(root.diagnostics, root.header, lineDelta);
+        }
+        return true;
+    }
+
+    /**
+     * Replace the specified declaration, at the specified index in the
+     * specified list of declarations, with the specified one. A null
+     * declaration is one left out of the list.
+     *
+     * @param declarations
+     *            the list.
+     * @param index
+     *            index of the declaration, or of where it would be.
+     * @param old
+     *            the declaration replaced, or null.
+     * @param replacement
+     *            the declaration replacing it, or null.
+     */
+
+    private static <T> void replace(ArrayList<T> declarations, int index,
+            T old, T replacement) {
+        if (old == null) {
+            if (replacement != null) {
+                declarations.add(index, replacement);
+            }
+        } else if (replacement == null) {
+            declarations.remove(index);
+        } else {
+            declarations.set(index, replacement);
+        }
+    }
+
+    /**
+     * Move the specified declaration by the specified numbers of characters
+     * and lines. The declarations in it, and the line numbers in its AST and
+     * diagnostics, are moved later (see pushDown()).
+     *
+     * @param declared
+     *            extent of the declaration.
+     * @param delta
+     *            number of characters to move it by.
+     * @param lineDelta
+     *            number of lines to move it by.
+     */
+
+    private void move(DeclarationExtent declared, int delta, int lineDelta) {
+        declared.start += delta;
+        declared.end += delta;
+        declared.line += lineDelta;
+        declared.delta += delta;
+        declared.lineDelta += lineDelta;
+    }
+
+    /**
+     * Make the moves still to be made within the specified declaration: move
+     * the line numbers in the things created in parsing it and in its
+     * diagnostics, and the declarations in it.
+     *
+     * @param declared
+     *            extent of the declaration.
+     */
+
+    private void pushDown(DeclarationExtent declared) {
+        if (declared.delta == 0 && declared.lineDelta == 0) {
+            return;
+        }
+        if (declared.lineDelta != 0) {
+            for (Object created : declared.created) {
+                if (created instanceof JAST) {
+                    ((JAST) created).shiftLine(declared.lineDelta);
+                } else if (created instanceof TypeName) {
+                    ((TypeName) created).shiftLine(declared.lineDelta);
+                } else if (created instanceof AmbiguousName) {
+                    ((AmbiguousName) created).shiftLine(declared.lineDelta);
+                }
+            }
+            shiftLines(declared.diagnostics, 0, declared.lineDelta);
+        }
+        for (DeclarationExtent member : declared.members) {
+            move(member, declared.delta, declared.lineDelta);
+        }
+        declared.delta = 0;
+        declared.lineDelta = 0;
+    }
+
+    /**
+     * Make all the moves still to be made within the specified declaration,
+     * and within those in it.
+     *
+     * @param declared
+     *            extent of the declaration.
+     */
+
+    private void flush(DeclarationExtent declared) {
+        pushDown(declared);
+        for (DeclarationExtent member : declared.members) {
+            flush(member);
+        }
+    }
+
+    /**
+     * Move the specified diagnostics, from the specified index on, by the
+     * specified number of lines.
+     *
+     * @param diagnostics
+     *            the diagnostics.
+     * @param from
+     *            index of the first diagnostic moved.
+     * @param lineDelta
+     *            number of lines to move them by.
+     */
+
+    private static void shiftLines(ArrayList<Diagnostic> diagnostics,
+            int from, int lineDelta) {
+        if (lineDelta == 0) {
+            return;
+        }
+        for (int i = Math.max(from, 0); i < diagnostics.size(); i++) {
+            Diagnostic diagnostic = diagnostics.get(i);
+            diagnostics.set(i, new Diagnostic(diagnostic.kind(), diagnostic
+                    .fileName(), diagnostic.line() + lineDelta, diagnostic
+                    .message()));
+        }
+    }
+
+    /**
+     * Add the diagnostics for the specified declaration, and those in it, to
+     * the specified list, in the order in which a parse reports them.
+     *
+     * @param declared
+     *            extent of the declaration.
+     * @param diagnostics
+     *            the list.
+     */
+
+    private static void addDiagnostics(DeclarationExtent declared,
+            ArrayList<Diagnostic> diagnostics) {
+        int header = declared.header < 0 ? declared.diagnostics.size()
+                : declared.header;
+        diagnostics.addAll(declared.diagnostics.subList(0, header));
+        for (DeclarationExtent member : declared.members) {
+            addDiagnostics(member, diagnostics);
+        }
+        diagnostics.addAll(declared.diagnostics.subList(header,
+                declared.diagnostics.size()));
+    }
+
+    /**
+     * Return the declaration, among those in the specified one, whose extent
+     * encloses the specified characters of the source.
+     *
+     * @param declared
+     *            extent of the declaration.
+     * @param offset
+     *            offset of the first of the characters.
+     * @param length
+     *            number of characters.
+     * @return extent of the enclosing declaration, or null if there is none.
+     */
+
+    private DeclarationExtent enclosing(DeclarationExtent declared,
+            int offset, int length) {
+        for (DeclarationExtent member : declared.members) {
+            if (member.start <= offset && offset + length <= member.end) {
+                return member;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the number of new lines ("\r\n", "\r" or "\n") that start within
+     * the specified range of the source.
+     *
+     * @param from
+     *            offset of the start of the range.
+     * @param to
+     *            offset just past the end of the range.
+     * @return the number of new lines.
+     */
+
+    private int newLines(int from, int to) {
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            char c = source[i];
+            if (c == '\n' || c == '\r'
+                    && (i + 1 == sourceLength || source[i + 1] != '\n')) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Return a new session for parsing in, which keeps the diagnostics but
+     * does not print them.
+     *
+     * @return the session.
+     */
+
+    private static CompilationSession session() {
+        PrintStream discard = new PrintStream(new OutputStream() {
+            public void write(int b) {
+            }
+        });
+        return new CompilationSession(discard, discard);
+    }
+
+}
+
+/**
+ * The extent in the source of a declaration, as recorded by the Parser for an
+ * IncrementalParser: where the declaration starts and ends, the things
+ * carrying line numbers that were created in parsing it and the diagnostics
+ * reported (outside the declarations in it), and the extents of the
+ * declarations in it, including those left out of the AST for errors. The
+ * extent of a whole source holds those of its type declarations, and the
+ * extent of a type declaration holds those of its members.
+ */
+
+class DeclarationExtent {
+
+    /** Extent of the enclosing declaration; null for a whole source. */
+    public DeclarationExtent parent;
+
+    /**
+     * The declaration; null for a whole source, or for a declaration left out
+     * of the AST for errors.
+     */
+    public JAST declaration;
+
+    /** Offset in the source of the first token of the declaration. */
+    public int start;
+
+    /** Offset in the source just past the last token of the declaration. */
+    public int end;
+
+    /** Line of the first token of the declaration. */
+    public int line;
+
+    /**
+     * AST nodes, type names and ambiguous names created in parsing the
+     * declaration, outside the declarations in it.
+     */
+    public ArrayList<Object> created;
+
+    /** Extents of the declarations in this one, in order. */
+    public ArrayList<DeclarationExtent> members;
+
+    /**
+     * Syntax errors reported in parsing the declaration, outside the
+     * declarations in it.
+     */
+    public ArrayList<Diagnostic> diagnostics;
+
+    /**
+     * Number of the diagnostics reported before the first declaration in this
+     * one; -1 if there is none in it.
+     */
+    public int header;
+
+    /** Number of parser errors found in the declaration, reported or not. */
+    public int errors;
+
+    /** Whether the parser had recovered from errors when it started on it. */
+    public boolean isRecoveredAtStart;
+
+    /**
+     * Number of characters past its end that the parser looked at in parsing
+     * the declaration, to see where it ended or in recovering from an error.
+     */
+    public int lookahead;
+
+    /**
+     * Number of characters by which the declarations in this one are still to
+     * be moved.
+     */
+    public int delta;
+
+    /**
+     * Number of lines by which the declarations in this one, and the line
+     * numbers in its created things and diagnostics, are still to be moved.
+     */
+    public int lineDelta;
+
+    /**
+     * Construct the extent of a declaration that starts at the specified
+     * offset and line, within the specified one.
+     *
+     * @param parent
+     *            extent of the enclosing declaration.
+     * @param start
+     *            offset of the first token of the declaration.
+     * @param line
+     *            line of the first token of the declaration.
+     */
+
+    public DeclarationExtent(DeclarationExtent parent, int start, int line) {
+        this.parent = parent;
+        this.start = start;
+        this.line = line;
+        created = new ArrayList<Object>();
+        members = new ArrayList<DeclarationExtent>();
+        diagnostics = new ArrayList<Diagnostic>();
+        header = -1;
+        isRecoveredAtStart = true;
+    }
+
+}
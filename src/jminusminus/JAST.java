@@ -8,9 +8,6 @@ package jminusminus;
 
 abstract class JAST {
 
-    /** Current compilation unit (set in JCompilationUnit()). */
-    public static JCompilationUnit compilationUnit;
-
     /** Line in which the source for the AST was found. */
     protected int line;
 
@@ -23,6 +20,20 @@ abstract class JAST {
 
     protected JAST(int line) {
         this.line = line;
+        CompilationSession session = CompilationSession.current();
+        session.count("astNodes", 1);
+        session.created(this);
+    }
+
+    /**
+     * Return the compilation unit being compiled in the current compilation
+     * session (set in JCompilationUnit()).
+     * 
+     * @return the current compilation unit.
+     */
+
+    public static JCompilationUnit compilationUnit() {
+        return CompilationSession.current().compilationUnit();
     }
 
     /**
@@ -35,6 +46,18 @@ abstract class JAST {
         return line;
     }
 
+    /**
+     * Move the AST by the specified number of lines, after lines were added
+     * to or removed from the source before it.
+     * 
+     * @param delta
+     *            number of lines added (or, if negative, removed).
+     */
+
+    public void shiftLine(int delta) {
+        line += delta;
+    }
+
     /**
      * Perform semantic analysis on this AST. In some instances a new returned
      * AST reflects surgery.
@@ -49,7 +49,7 @@ class JArrayInitializer
     public JExpression analyze(Context context) {
         type = type.resolve(context);
         if (!type.isArray()) {
-            JAST.compilationUnit.reportSemanticError(line,
+            JAST.compilationUnit().reportSemanticError(line,
                 "Cannot initialize a " + type.toString()
                     + " with an array sequence {...}");
             return this; // un-analyzed
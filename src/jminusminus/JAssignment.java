@@ -67,7 +67,7 @@ class JAssignOp extends JAssignment {
 
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Illegal lhs for assignment");
         } else {
             lhs = (JExpression) ((JLhs) lhs).analyzeLhs(context);
@@ -143,7 +143,7 @@ class JPlusAssignOp extends JAssignment {
 
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Illegal lhs for assignment");
 	    return this;
         } else {
@@ -160,7 +160,7 @@ class JPlusAssignOp extends JAssignment {
             rhs = (new JStringConcatenationOp(line, lhs, rhs)).analyze(context);
             type = Type.STRING;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for +=: " + lhs.type());
         }
         return this;
@@ -233,7 +233,7 @@ class JMinusAssignOp extends JAssignment {
 
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Illegal lhs for assignment");
 	    return this;
         } else {
@@ -247,7 +247,7 @@ class JMinusAssignOp extends JAssignment {
         	rhs.type.mustMatchOneOf(line(), Type.INT, Type.DOUBLE);
         	type = Type.DOUBLE;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for -=: " + lhs.type());
         }
         return this;
@@ -317,7 +317,7 @@ class JStarAssignOp extends JAssignment {
 
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Illegal lhs for assignment");
 	    return this;
         } else {
@@ -331,7 +331,7 @@ class JStarAssignOp extends JAssignment {
         	rhs.type.mustMatchOneOf(line(), Type.INT, Type.DOUBLE);
         	type = Type.DOUBLE;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for *=: " + lhs.type());
         }
         return this;
@@ -401,7 +401,7 @@ class JDivAssignOp extends JAssignment {
 
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Illegal lhs for assignment");
 	    return this;
         } else {
@@ -415,7 +415,7 @@ class JDivAssignOp extends JAssignment {
         	rhs.type.mustMatchOneOf(line(), Type.INT, Type.DOUBLE);
         	type = Type.DOUBLE;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for /=: " + lhs.type());
         }
         return this;
@@ -485,7 +485,7 @@ class JRemAssignOp extends JAssignment {
 
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Illegal lhs for assignment");
 	    return this;
         } else {
@@ -499,7 +499,7 @@ class JRemAssignOp extends JAssignment {
         	rhs.type.mustMatchOneOf(line(), Type.INT, Type.DOUBLE);
         	type = Type.DOUBLE;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for %=: " + lhs.type());
         }
         return this;
@@ -99,6 +99,16 @@ class JClassDeclaration extends JAST implements JTypeDecl {
         return name;
     }
 
+    /**
+     * Return the members of this class.
+     * 
+     * @return the members.
+     */
+
+    public ArrayList<JMember> members() {
+        return classBlock;
+    }
+
     /**
      * Return the class' super class type.
      * 
@@ -138,8 +148,8 @@ class JClassDeclaration extends JAST implements JTypeDecl {
      */
 
     public void declareThisType(Context context) {
-        String qualifiedName = JAST.compilationUnit.packageName() == "" ? name
-                : JAST.compilationUnit.packageName() + "/" + name;
+        String qualifiedName = JAST.compilationUnit().packageName() == "" ? name
+                : JAST.compilationUnit().packageName() + "/" + name;
         ArrayList<String> interfaceTypeNames = new ArrayList<String>();
     	for (Type implementsType : implementsTypes) {
     		interfaceTypeNames.add(implementsType.jvmName());
@@ -174,7 +184,7 @@ class JClassDeclaration extends JAST implements JTypeDecl {
     		interfaceTypeNames.add(implementsTypes.get(i).jvmName());
 
 			if (!implementsTypes.get(i).isInterface())
-	            JAST.compilationUnit.reportSemanticError(line,
+	            JAST.compilationUnit().reportSemanticError(line,
 	                    "Implemented type is not an interface: %s", implementsTypes.get(i).toString());
         }
 
@@ -183,7 +193,7 @@ class JClassDeclaration extends JAST implements JTypeDecl {
         // violated, so we can't defer these checks to analyze()
         thisType.checkAccess(line, superType);
         if (superType.isFinal()) {
-            JAST.compilationUnit.reportSemanticError(line,
+            JAST.compilationUnit().reportSemanticError(line,
                     "Cannot extend a final type: %s", superType.toString());
         }
 
@@ -191,8 +201,8 @@ class JClassDeclaration extends JAST implements JTypeDecl {
         CLEmitter partial = new CLEmitter(false);
 
         // Add the class header to the partial class
-        String qualifiedName = JAST.compilationUnit.packageName() == "" ? name
-                : JAST.compilationUnit.packageName() + "/" + name;
+        String qualifiedName = JAST.compilationUnit().packageName() == "" ? name
+                : JAST.compilationUnit().packageName() + "/" + name;
         partial.addClass(mods, qualifiedName, superType.jvmName(), interfaceTypeNames, false);
 
         // Pre-analyze the members and add them to the partial
@@ -214,7 +224,7 @@ class JClassDeclaration extends JAST implements JTypeDecl {
         // the
         // representation for this type
         Type id = this.context.lookupType(name);
-        if (id != null && !JAST.compilationUnit.errorHasOccurred()) {
+        if (id != null && !JAST.compilationUnit().errorHasOccurred()) {
             id.setClassRep(partial.toClass());
         }
     }
@@ -254,7 +264,7 @@ class JClassDeclaration extends JAST implements JTypeDecl {
             for (Method method : thisType.abstractMethods()) {
                 methods += "\n" + method;
             }
-            JAST.compilationUnit.reportSemanticError(line,
+            JAST.compilationUnit().reportSemanticError(line,
                     "Class must be declared abstract since it defines "
                             + "the following abstract methods: %s", methods);
 
@@ -273,8 +283,8 @@ class JClassDeclaration extends JAST implements JTypeDecl {
 
     public void codegen(CLEmitter output) {
         // The class header
-        String qualifiedName = JAST.compilationUnit.packageName() == "" ? name
-                : JAST.compilationUnit.packageName() + "/" + name;
+        String qualifiedName = JAST.compilationUnit().packageName() == "" ? name
+                : JAST.compilationUnit().packageName() + "/" + name;
         output.addClass(mods, qualifiedName, superType.jvmName(), null, false);
 
         // The implicit empty constructor?
@@ -89,7 +89,7 @@ class JCompilationUnit extends JAST {
         this.imports = imports;
         this.typeDeclarations = typeDeclarations;
         clFiles = new ArrayList<CLFile>();
-        compilationUnit = this;
+        CompilationSession.current().compilationUnit(this);
     }
 
     /**
@@ -102,6 +102,16 @@ class JCompilationUnit extends JAST {
         return packageName == null ? "" : packageName.toString();
     }
 
+    /**
+     * Return the type declarations in this compilation unit.
+     * 
+     * @return the type declarations.
+     */
+
+    public ArrayList<JAST> typeDeclarations() {
+        return typeDeclarations;
+    }
+
     /**
      * Has a semantic error occurred up to now?
      * 
@@ -126,9 +136,9 @@ class JCompilationUnit extends JAST {
     public void reportSemanticError(int line, String message,
             Object... arguments) {
         isInError = true;
-        System.err.printf("%s:%d: ", fileName, line);
-        System.err.printf(message, arguments);
-        System.err.println();
+        CompilationSession.current().report(
+                new Diagnostic(Diagnostic.Kind.SEMANTIC, fileName, line, String
+                        .format(message, arguments)));
     }
 
     /**
@@ -150,10 +160,10 @@ class JCompilationUnit extends JAST {
         // Declare any imported types
         for (TypeName imported : imports) {
             try {
-                Class<?> classRep = Class.forName(imported.toString());
+                Class<?> classRep = Type.classFor(imported.toString());
                 context.addType(imported.line(), Type.typeFor(classRep));
             } catch (Exception e) {
-                JAST.compilationUnit.reportSemanticError(imported.line(),
+                JAST.compilationUnit().reportSemanticError(imported.line(),
                         "Unable to find %s", imported.toString());
             }
         }
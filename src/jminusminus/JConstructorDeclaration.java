@@ -56,10 +56,10 @@ class JConstructorDeclaration extends JMethodDeclaration implements JMember {
     public void preAnalyze(Context context, CLEmitter partial) {
         super.preAnalyze(context, partial);
         if (isStatic) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Constructor cannot be declared static");
         } else if (isAbstract) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Constructor cannot be declared abstract");
         }
         if (body.statements().size() > 0
@@ -110,11 +110,11 @@ class JConstructorDeclaration extends JMethodDeclaration implements JMember {
         
         for (Type throwType : throwTypes) {
             if (!Type.EXCEPTION.isJavaAssignableFrom(throwType)) {
-    			JAST.compilationUnit.reportSemanticError(line(), "Throw type is not an exception.");
+    			JAST.compilationUnit().reportSemanticError(line(), "Throw type is not an exception.");
             }
         }
         
-        if (body != null) {
+        if (body != null && !bodyIsErroneous) {
             body = body.analyze(this.context);
         }
         return this;
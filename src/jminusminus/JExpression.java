@@ -80,7 +80,7 @@ abstract class JExpression extends JStatement {
         // We should never reach here, i.e., all boolean
         // (including
         // identifier) expressions must override this method.
-        System.err.println("Error in code generation");
+        CompilationSession.current().err().println("Error in code generation");
     }
 
 }
@@ -135,7 +135,7 @@ class JForEachStatement extends JStatement {
         	
         	replacement = new JForStatement(line, initDeclaration, termination, new ArrayList<JStatement>(), newBody);
         } else {
-			JAST.compilationUnit.reportSemanticError(line(), "Enumeration is neither an array nor iterable.");
+			JAST.compilationUnit().reportSemanticError(line(), "Enumeration is neither an array nor iterable.");
         }
     	
     	return (JStatement) replacement.analyze(this.context);
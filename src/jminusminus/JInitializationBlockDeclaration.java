@@ -48,16 +48,16 @@ class JInitializationBlockDeclaration extends JMethodDeclaration implements JMem
 
     public void preAnalyze(Context context, CLEmitter partial) {
         if (isPrivate) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Initialization block cannot be declared private");
         } else if (isAbstract) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Initialization block cannot be declared abstract");
         } else if (mods.contains("protected")) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Initialization block cannot be declared protected");
         } else if (mods.contains("public")) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            JAST.compilationUnit().reportSemanticError(line(),
                     "Initialization block cannot be declared public");
         }
     }
@@ -80,7 +80,7 @@ class JInitializationBlockDeclaration extends JMethodDeclaration implements JMem
             this.context.nextOffset();
         }
 
-        if (body != null) {
+        if (body != null && !bodyIsErroneous) {
             body = body.analyze(this.context);
         }
         return this;
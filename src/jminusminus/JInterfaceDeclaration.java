@@ -64,6 +64,16 @@ class JInterfaceDeclaration extends JAST implements JTypeDecl {
         return name;
     }
 
+    /**
+     * Return the members of this interface.
+     * 
+     * @return the members.
+     */
+
+    public ArrayList<JMember> members() {
+        return interfaceBlock;
+    }
+
     /**
      * Return the class' super class type.
      * 
@@ -92,8 +102,8 @@ class JInterfaceDeclaration extends JAST implements JTypeDecl {
      */
 
     public void declareThisType(Context context) {
-        String qualifiedName = JAST.compilationUnit.packageName() == "" ? name
-                : JAST.compilationUnit.packageName() + "/" + name;
+        String qualifiedName = JAST.compilationUnit().packageName() == "" ? name
+                : JAST.compilationUnit().packageName() + "/" + name;
         ArrayList<String> interfaceTypeNames = new ArrayList<String>();
     	for (int i = 0; i < extendsTypes.size(); i++)
 			interfaceTypeNames.add(extendsTypes.get(i).jvmName());
@@ -123,14 +133,14 @@ class JInterfaceDeclaration extends JAST implements JTypeDecl {
 			interfaceTypeNames.add(extendsTypes.get(i).jvmName());
 
 			if (!extendsTypes.get(i).isInterface())
-	            JAST.compilationUnit.reportSemanticError(line,
+	            JAST.compilationUnit().reportSemanticError(line,
 	                    "Extended type is not an interface: %s", extendsTypes.get(i).toString());
         }
 
         CLEmitter partial = new CLEmitter(false);
 
-        String qualifiedName = JAST.compilationUnit.packageName() == "" ? name
-                : JAST.compilationUnit.packageName() + "/" + name;
+        String qualifiedName = JAST.compilationUnit().packageName() == "" ? name
+                : JAST.compilationUnit().packageName() + "/" + name;
         partial.addClass(mods, qualifiedName, superType().jvmName(), interfaceTypeNames, false);
 
         for (JMember member : interfaceBlock) {
@@ -138,7 +148,7 @@ class JInterfaceDeclaration extends JAST implements JTypeDecl {
         }
 
         Type id = this.context.lookupType(name);
-        if (id != null && !JAST.compilationUnit.errorHasOccurred()) {
+        if (id != null && !JAST.compilationUnit().errorHasOccurred()) {
             id.setClassRep(partial.toClass());
         }
     }
@@ -174,7 +184,7 @@ class JInterfaceDeclaration extends JAST implements JTypeDecl {
                 ArrayList<String> modsCopy = new ArrayList<String>(fieldDecl.mods());
                 modsCopy.removeAll(allowedFieldMods);
                 if (!modsCopy.isEmpty()) {
-                    JAST.compilationUnit.reportSemanticError(line,
+                    JAST.compilationUnit().reportSemanticError(line,
                             "Interface field has illegal modifiers: %s", modsCopy.toString());
                 } else {
                     staticFieldInitializations.add(fieldDecl);
@@ -185,7 +195,7 @@ class JInterfaceDeclaration extends JAST implements JTypeDecl {
                 modsCopy.retainAll(disallowedMethodMods);
                 
                 if (!modsCopy.isEmpty()) {
-                    JAST.compilationUnit.reportSemanticError(line,
+                    JAST.compilationUnit().reportSemanticError(line,
                             "Interface method has illegal modifiers: %s", modsCopy.toString());
                 }
             }
@@ -204,8 +214,8 @@ class JInterfaceDeclaration extends JAST implements JTypeDecl {
 
     public void codegen(CLEmitter output) {
         // The class header
-        String qualifiedName = JAST.compilationUnit.packageName() == "" ? name
-                : JAST.compilationUnit.packageName() + "/" + name;
+        String qualifiedName = JAST.compilationUnit().packageName() == "" ? name
+                : JAST.compilationUnit().packageName() + "/" + name;
 
         ArrayList<String> interfaceTypeNames = new ArrayList<String>();
     	for (int i = 0; i < extendsTypes.size(); i++)
@@ -45,6 +45,9 @@ class JMethodDeclaration extends JAST implements JMember {
 	/** Is method private. */
 	protected boolean isPrivate;
 
+	/** Were syntax errors found in the body (which is then not analyzed)? */
+	protected boolean bodyIsErroneous;
+
 	/**
 	 * Construct an AST node for a method declaration given the line number, method
 	 * name, return type, formal parameters, and the method body.
@@ -90,6 +93,16 @@ class JMethodDeclaration extends JAST implements JMember {
 		this.isPrivate = mods.contains("private");
 	}
 	
+	/**
+	 * Record that syntax errors were found in the body of this method, so that
+	 * analysis leaves the body alone rather than report errors that follow from
+	 * them.
+	 */
+
+	public void bodyIsErroneous() {
+		bodyIsErroneous = true;
+	}
+
 	/** Return list of modifiers */
 	public ArrayList<String> mods() {
 		return mods;
@@ -118,13 +131,13 @@ class JMethodDeclaration extends JAST implements JMember {
 
 		// Check proper local use of abstract
 		if (isAbstract && body != null) {
-			JAST.compilationUnit.reportSemanticError(line(), "abstract method cannot have a body");
+			JAST.compilationUnit().reportSemanticError(line(), "abstract method cannot have a body");
 		} else if (body == null && !isAbstract) {
-			JAST.compilationUnit.reportSemanticError(line(), "Method with null body must be abstract");
+			JAST.compilationUnit().reportSemanticError(line(), "Method with null body must be abstract");
 		} else if (isAbstract && isPrivate) {
-			JAST.compilationUnit.reportSemanticError(line(), "private method cannot be declared abstract");
+			JAST.compilationUnit().reportSemanticError(line(), "private method cannot be declared abstract");
 		} else if (isAbstract && isStatic) {
-			JAST.compilationUnit.reportSemanticError(line(), "static method cannot be declared abstract");
+			JAST.compilationUnit().reportSemanticError(line(), "static method cannot be declared abstract");
 		}
 
 		// Compute descriptor
@@ -167,14 +180,14 @@ class JMethodDeclaration extends JAST implements JMember {
         
         for (Type throwType : throwTypes) {
             if (!Type.EXCEPTION.isJavaAssignableFrom(throwType)) {
-    			JAST.compilationUnit.reportSemanticError(line(), "Throw type is not an exception.");
+    			JAST.compilationUnit().reportSemanticError(line(), "Throw type is not an exception.");
             }
         }
         
-		if (body != null) {
+		if (body != null && !bodyIsErroneous) {
 			body = body.analyze(this.context);
 			if (returnType != Type.VOID && !methodContext.methodHasReturn()) {
-				JAST.compilationUnit.reportSemanticError(line(), "Non-void method must have a return statement");
+				JAST.compilationUnit().reportSemanticError(line(), "Non-void method must have a return statement");
 			}
 		}
 		return this;
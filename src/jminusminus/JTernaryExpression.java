@@ -96,7 +96,7 @@ class JConditionalExpression extends JTernaryExpression {
 		
 		// Exp2 and exp3 are branches and should have matching types
         if (!exp2.type().matchesExpected(exp3.type()) && !exp3.type().matchesExpected(exp2.type()))
-        	 JAST.compilationUnit.reportSemanticError(line(), "If-else expressions should have matching types");
+        	 JAST.compilationUnit().reportSemanticError(line(), "If-else expressions should have matching types");
 		
         // The type is determined by the type of the branches
         type = exp2.type();
@@ -37,7 +37,7 @@ class JThrowStatement extends JStatement {
 	public JStatement analyze(Context context) {
         expr = expr.analyze(context);
         if (!Type.EXCEPTION.isJavaAssignableFrom(expr.type())) {
-			JAST.compilationUnit.reportSemanticError(line(), "Thrown expression is not an exception.");
+			JAST.compilationUnit().reportSemanticError(line(), "Thrown expression is not an exception.");
         }
         return this;
 	}
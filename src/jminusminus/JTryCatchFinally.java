@@ -59,7 +59,7 @@ class JTryCatchFinallyStatement extends JStatement {
 
     public JTryCatchFinallyStatement analyze(Context context) {
     	if ((exceptionsToCatch.size() == 0) && (finallyBlock == null)) {
-    			JAST.compilationUnit.reportSemanticError(line(), "Encountered 'try' without 'catch' or 'finally' declarations");
+    			JAST.compilationUnit().reportSemanticError(line(), "Encountered 'try' without 'catch' or 'finally' declarations");
     	}
     	
         this.offset = ((LocalContext) context).nextOffset();
@@ -74,7 +74,7 @@ class JTryCatchFinallyStatement extends JStatement {
         for (int i = 0; i < exceptionsToCatch.size(); i++) {
         	exceptionsToCatch.get(i).setType(exceptionsToCatch.get(i).type().resolve(context));
             if (!Type.EXCEPTION.isJavaAssignableFrom(exceptionsToCatch.get(i).type())) {
-    			JAST.compilationUnit.reportSemanticError(line(), "Catch expression is not an exception.");
+    			JAST.compilationUnit().reportSemanticError(line(), "Catch expression is not an exception.");
             }
         }
         
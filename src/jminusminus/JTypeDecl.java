@@ -2,6 +2,8 @@
 
 package jminusminus;
 
+import java.util.ArrayList;
+
 /**
  * An interface supported by class (or later, interface) declarations.
  */
@@ -53,4 +55,12 @@ interface JTypeDecl {
 
     public Type thisType();
 
+    /**
+     * Return the members of this type declaration.
+     * 
+     * @return the members.
+     */
+
+    public ArrayList<JMember> members();
+
 }
@@ -196,7 +196,7 @@ class JPostIncrementOp extends JUnaryExpression {
 
 	public JExpression analyze(Context context) {
 		if (!(arg instanceof JLhs)) {
-			JAST.compilationUnit.reportSemanticError(line, "Operand to expr++ must have an LValue.");
+			JAST.compilationUnit().reportSemanticError(line, "Operand to expr++ must have an LValue.");
 			type = Type.ANY;
 		} else {
 			arg = (JExpression) arg.analyze(context);
@@ -275,7 +275,7 @@ class JPostDecrementOp extends JUnaryExpression {
 
 	public JExpression analyze(Context context) {
 		if (!(arg instanceof JLhs)) {
-			JAST.compilationUnit.reportSemanticError(line, "Operand to expr-- must have an LValue.");
+			JAST.compilationUnit().reportSemanticError(line, "Operand to expr-- must have an LValue.");
 			type = Type.ANY;
 		} else {
 			arg = (JExpression) arg.analyze(context);
@@ -353,7 +353,7 @@ class JPreIncrementOp extends JUnaryExpression {
 
 	public JExpression analyze(Context context) {
 		if (!(arg instanceof JLhs)) {
-			JAST.compilationUnit.reportSemanticError(line, "Operand to ++expr must have an LValue.");
+			JAST.compilationUnit().reportSemanticError(line, "Operand to ++expr must have an LValue.");
 			type = Type.ANY;
 		} else {
 			arg = (JExpression) arg.analyze(context);
@@ -431,7 +431,7 @@ class JPreDecrementOp extends JUnaryExpression {
 
 	public JExpression analyze(Context context) {
 		if (!(arg instanceof JLhs)) {
-			JAST.compilationUnit.reportSemanticError(line, "Operand to --expr must have an LValue.");
+			JAST.compilationUnit().reportSemanticError(line, "Operand to --expr must have an LValue.");
 			type = Type.ANY;
 		} else {
 			arg = (JExpression) arg.analyze(context);
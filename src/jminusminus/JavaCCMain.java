@@ -131,7 +131,7 @@ public class JavaCCMain {
 
         // Do pre-analysis
         ast.preAnalyze();
-        errorHasOccurred |= JAST.compilationUnit.errorHasOccurred();
+        errorHasOccurred |= JAST.compilationUnit().errorHasOccurred();
         if (debugOption.equals("-pa")) {
             ast.writeToStdOut(new PrettyPrinter());
             return;
@@ -142,7 +142,7 @@ public class JavaCCMain {
 
         // Do analysis
         ast.analyze(null);
-        errorHasOccurred |= JAST.compilationUnit.errorHasOccurred();
+        errorHasOccurred |= JAST.compilationUnit().errorHasOccurred();
         if (debugOption.equals("-a")) {
             ast.writeToStdOut(new PrettyPrinter());
             return;
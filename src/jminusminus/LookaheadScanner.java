@@ -3,13 +3,20 @@
 package jminusminus;
 
 import java.io.FileNotFoundException;
-import java.util.Stack;
-import java.util.Vector;
+import java.io.Reader;
 
 /**
  * A lexical analyzer for j-- that interfaces with the hand-written parser
  * (Parser.java). It provides a backtracking mechanism, and makes use of the
  * underlying hand-written Scanner.
+ *
+ * The scanned tokens are kept in a TokenStream, so backtracking is a matter of
+ * returning to the index of an earlier token; the parser gets at the current
+ * and previous tokens through kind(), image(), line() and previousImage(),
+ * which allocate nothing. Recorded positions are kept on a stack of indices,
+ * and the tokens before the one preceding the outermost of them (or the
+ * current token, when not looking ahead) are released, so the stream stays as
+ * small as the deepest lookahead.
  */
 
 class LookaheadScanner {
@@ -17,23 +24,35 @@ class LookaheadScanner {
     /** The underlying hand-written scanner. */
     private Scanner scanner;
 
-    /** Backtracking queue. */
-    private Vector<TokenInfo> backtrackingQueue;
+    /** The tokens scanned so far. */
+    private TokenStream tokens;
 
-    /** Token queue. */
-    private Vector<TokenInfo> nextQueue;
+    /** Index in tokens of the current token; -1 before the first. */
+    private int current;
 
-    /** Stack of token queues for nested lookahead. */
-    private Stack<Vector<TokenInfo>> queueStack;
+    /** Stack of recorded positions (indices of tokens) for nested lookahead. */
+    private int[] positions;
+
+    /** Number of positions on the stack. */
+    private int depth;
 
     /** Whether we are looking ahead. */
     public boolean isLookingAhead;
 
-    /** Previous token. */
-    private TokenInfo previousToken;
+    /** Statistics of the compilation session; null if not being gathered. */
+    private Statistics statistics;
+
+    /** Number of tokens scanned but not yet counted in the statistics. */
+    private int scanned;
+
+    /**
+     * Index in tokens of the furthest token whose kind has been asked for:
+     * how far the parser has looked (see IncrementalParser).
+     */
+    private int furthest;
 
-    /** Current token. */
-    private TokenInfo token;
+    /** Number of tokens counted in the statistics at a time. */
+    private static final int COUNT_BATCH = 4096;
 
     /**
      * Construct a LookaheadScanner from a file name.
@@ -45,11 +64,81 @@ class LookaheadScanner {
      */
 
     public LookaheadScanner(String fileName) throws FileNotFoundException {
-        scanner = new Scanner(fileName);
-        backtrackingQueue = new Vector<TokenInfo>();
-        nextQueue = new Vector<TokenInfo>();
-        queueStack = new Stack<Vector<TokenInfo>>();
+        this(new Scanner(fileName));
+    }
+
+    /**
+     * Construct a LookaheadScanner for source that is read from the specified
+     * reader rather than from a file.
+     * 
+     * @param fileName
+     *            the name by which the source is known in diagnostics.
+     * @param source
+     *            reader for the source.
+     */
+
+    public LookaheadScanner(String fileName, Reader source) {
+        this(new Scanner(fileName, source));
+    }
+
+    /**
+     * Construct a LookaheadScanner for source that is read from the specified
+     * reader, and that is a part of a larger source starting at the specified
+     * offset and line (see IncrementalParser).
+     * 
+     * @param fileName
+     *            the name by which the source is known in diagnostics.
+     * @param source
+     *            reader for the source.
+     * @param offset
+     *            offset of the source in the larger source.
+     * @param line
+     *            line at which the source starts in the larger source.
+     */
+
+    public LookaheadScanner(String fileName, Reader source, int offset,
+            int line) {
+        this(new Scanner(fileName, source, offset, line));
+    }
+
+    /**
+     * Construct a LookaheadScanner for a part of a source that has already
+     * been read, from the specified start offset up to the specified end
+     * offset, the start being on the specified line (see ParallelParser).
+     * 
+     * @param fileName
+     *            the name by which the source is known in diagnostics.
+     * @param source
+     *            the source, which is shared and must not be changed.
+     * @param start
+     *            offset of the start of the part.
+     * @param end
+     *            offset of the end of the part.
+     * @param line
+     *            line at which the part starts.
+     */
+
+    public LookaheadScanner(String fileName, char[] source, int start,
+            int end, int line) {
+        this(new Scanner(fileName, source, start, end, line));
+    }
+
+    /**
+     * Construct a LookaheadScanner on top of the specified Scanner.
+     * 
+     * @param scanner
+     *            the underlying scanner.
+     */
+
+    private LookaheadScanner(Scanner scanner) {
+        this.scanner = scanner;
+        tokens = new TokenStream(scanner.names());
+        current = -1;
+        positions = new int[16];
+        depth = 0;
+        furthest = -1;
         isLookingAhead = false;
+        statistics = CompilationSession.current().statistics();
     }
 
     /**
@@ -57,48 +146,62 @@ class LookaheadScanner {
      */
 
     public void next() {
-        previousToken = token;
-        if (backtrackingQueue.size() == 0) {
-            token = scanner.getNextToken();
-        } else {
-            token = backtrackingQueue.remove(0);
-        }
-        if (isLookingAhead) {
-            nextQueue.add(token);
+        if (current + 1 == tokens.size()) {
+            scanner.scan();
+
+            // Scanning is timed as part of parsing, which it is interleaved
+            // with; timing each token would cost more than scanning it
+            if (statistics != null && (++scanned == COUNT_BATCH
+                    || scanner.kind() == TokenKind.EOF)) {
+                statistics.count("tokens", scanned);
+                scanned = 0;
+            }
+            tokens.add(scanner.kind(), scanner.symbol(), scanner.line(),
+                    scanner.offset(), scanner.length());
+
+            // Keep the token that will be the previous one, and that before
+            // the outermost recorded position
+            tokens.release(depth == 0 ? current : positions[0] - 1);
         }
+        current++;
     }
 
     /**
      * Record the current position in the input, so that we can start looking
-     * ahead in the input (and later return to this position). We'll queue up
-     * the current and subsequent tokens until returnToPosition() is invoked.
-     * These recordPosition's can be nested.
+     * ahead in the input (and later return to this position). These
+     * recordPosition's can be nested.
      */
 
     public void recordPosition() {
         isLookingAhead = true;
-        queueStack.push(nextQueue);
-        nextQueue = new Vector<TokenInfo>();
-        nextQueue.add(previousToken);
-        nextQueue.add(token);
+        if (depth == positions.length) {
+            int[] grown = new int[2 * depth];
+            System.arraycopy(positions, 0, grown, 0, depth);
+            positions = grown;
+        }
+        positions[depth++] = current;
     }
 
     /**
      * Return to the previously recorded position in the input stream of tokens.
-     * If this is a nested lookahead, then return to the previous token queue.
+     * If this is a nested lookahead, then return to the previous recorded
+     * position the next time.
      */
 
     public void returnToPosition() {
-        while (backtrackingQueue.size() > 0) {
-            nextQueue.add(backtrackingQueue.remove(0));
-        }
-        backtrackingQueue = nextQueue;
-        nextQueue = queueStack.pop();
-        isLookingAhead = !(queueStack.empty());
+        current = positions[--depth];
+        isLookingAhead = depth > 0;
+    }
 
-        // Restore previous and current tokens
-        previousToken = backtrackingQueue.remove(0);
-        token = backtrackingQueue.remove(0);
+    /**
+     * Return the position in the input of the current token: its index among
+     * the tokens scanned.
+     * 
+     * @return the position.
+     */
+
+    public int position() {
+        return current;
     }
 
     /**
@@ -108,7 +211,7 @@ class LookaheadScanner {
      */
 
     public TokenInfo token() {
-        return token;
+        return current < 0 ? null : tokens.token(current);
     }
 
     /**
@@ -120,7 +223,84 @@ class LookaheadScanner {
      */
 
     public TokenInfo previousToken() {
-        return previousToken;
+        return current < 1 ? null : tokens.token(current - 1);
+    }
+
+    /**
+     * Return the kind of the current token.
+     * 
+     * @return the kind.
+     */
+
+    public TokenKind kind() {
+        if (current > furthest) {
+            furthest = current;
+        }
+        return tokens.kind(current);
+    }
+
+    /**
+     * Return the offset in the source just past the furthest token the parser
+     * has looked at so far, or just past the previous token if that is
+     * further.
+     * 
+     * @return the offset.
+     */
+
+    public int lookedTo() {
+        return furthest < current ? previousEnd() : tokens.offset(furthest)
+                + tokens.length(furthest);
+    }
+
+    /**
+     * Return the image of the current token.
+     * 
+     * @return the image.
+     */
+
+    public String image() {
+        return tokens.image(current);
+    }
+
+    /**
+     * Return the line of the current token.
+     * 
+     * @return the line.
+     */
+
+    public int line() {
+        return tokens.line(current);
+    }
+
+    /**
+     * Return the offset in the source of the current token.
+     * 
+     * @return the offset.
+     */
+
+    public int offset() {
+        return tokens.offset(current);
+    }
+
+    /**
+     * Return the offset in the source just past the previous token.
+     * 
+     * @return the offset.
+     */
+
+    public int previousEnd() {
+        return tokens.offset(current - 1) + tokens.length(current - 1);
+    }
+
+    /**
+     * Return the image of the previous token; for example the name of an
+     * identifier, after we've scanned it.
+     * 
+     * @return the image.
+     */
+
+    public String previousImage() {
+        return tokens.image(current - 1);
     }
 
     /**
@@ -143,4 +323,14 @@ class LookaheadScanner {
         return scanner.fileName();
     }
 
+    /**
+     * Return the whole source being scanned, which must not be changed.
+     * 
+     * @return the source characters.
+     */
+
+    public char[] source() {
+        return scanner.source();
+    }
+
 }
@@ -2,15 +2,27 @@
 
 package jminusminus;
 
-import java.io.FileInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import static jminusminus.TokenKind.EOF;
 
 /**
  * Driver class for j-- compiler using hand-written front-end. This is the main
  * entry point for the compiler. The compiler proceeds as follows:
  * 
- * (1) It reads arguments that affects its behavior.
+ * (1) It reads arguments that affects its behavior. Any number of source files
+ * and directories (searched recursively for .java files) may be given; they
+ * are all compiled in the same run: one after the other, or, with -j, several
+ * at a time on a fork/join pool. Each source file is compiled in a
+ * CompilationSession of its own, so the steps below are independent from one
+ * file to the next.
  * 
  * (2) It builds a scanner.
  * 
@@ -38,23 +50,55 @@ public class Main {
     /** Whether an error occurred during compilation. */
     private static boolean errorHasOccurred;
 
+    /** Debug option (-t, -p, -pa or -a), if any. */
+    private static String debugOption;
+
+    /** Destination directory for the output files. */
+    private static String outputDir;
+
+    /** Whether SPIM code is to be generated. */
+    private static boolean spimOutput;
+
+    /** Register allocation scheme (naive, linear, or graph). */
+    private static String registerAllocation;
+
+    /** Number of source files to compile concurrently. */
+    private static int threads;
+
+    /** Number of threads on which to parse the type declarations of a file. */
+    private static int parseThreads;
+
+    /**
+     * File to which statistics are written as JSON; empty for STDERR, null if
+     * statistics are not to be gathered.
+     */
+    private static String statisticsFile;
+
     /**
      * Entry point.
      */
 
     public static void main(String args[]) {
         String caller = "java jminusminus.Main";
-        String sourceFile = "";
-        String debugOption = "";
-        String outputDir = ".";
-        boolean spimOutput = false;
-        String registerAllocation = "";
+        CompilationSession run = CompilationSession.current();
+        ArrayList<String> sourceFiles = new ArrayList<String>();
+        debugOption = "";
+        outputDir = ".";
+        spimOutput = false;
+        registerAllocation = "";
+        threads = 1;
+        parseThreads = 1;
+        statisticsFile = null;
+        NPhysicalRegister.MAX_COUNT = 8;
         errorHasOccurred = false;
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("j--")) {
                 caller = "j--";
             } else if (args[i].endsWith(".java")) {
-                sourceFile = args[i];
+                sourceFiles.add(args[i]);
+            } else if (!args[i].startsWith("-")
+                    && run.file(args[i]).isDirectory()) {
+                addSourceFiles(run.file(args[i]), args[i], sourceFiles);
             } else if (args[i].equals("-t") || args[i].equals("-p")
                     || args[i].equals("-pa") || args[i].equals("-a")) {
                 debugOption = args[i];
@@ -67,7 +111,7 @@ public class Main {
                         && !registerAllocation.equals("linear")
                         && !registerAllocation.equals("graph")
                         || registerAllocation.equals("")) {
-                    printUsage(caller);
+                    printUsage(caller, run);
                     return;
                 }
             } else if (args[i].endsWith("-r") && (i + 1) < args.length) {
@@ -75,89 +119,312 @@ public class Main {
                         .parseInt(args[++i]));
                 NPhysicalRegister.MAX_COUNT = Math.max(1,
                         NPhysicalRegister.MAX_COUNT);
+            } else if (args[i].equals("-j") && (i + 1) < args.length) {
+                threads = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-pj") && (i + 1) < args.length) {
+                parseThreads = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-Xstats")) {
+                statisticsFile = "";
+            } else if (args[i].startsWith("-Xstats:")) {
+                statisticsFile = args[i].substring("-Xstats:".length());
             } else {
-                printUsage(caller);
+                printUsage(caller, run);
                 return;
             }
         }
-        if (sourceFile.equals("")) {
-            printUsage(caller);
+        if (sourceFiles.isEmpty()) {
+            printUsage(caller, run);
             return;
         }
 
+        // Compile each source file in a session of its own. The Type
+        // cache for imported types is shared, and stays warm from one
+        // file to the next.
+        long startTime = System.nanoTime();
+        ArrayList<String> failedFiles = new ArrayList<String>();
+        ArrayList<Statistics> statistics = new ArrayList<Statistics>();
+        if (threads == 1 || sourceFiles.size() == 1) {
+            for (String sourceFile : sourceFiles) {
+                CompilationSession session = new CompilationSession(run.out(),
+                        run.err(), run.directory());
+                if (statisticsFile != null) {
+                    session.statistics(new Statistics(sourceFile));
+                    statistics.add(session.statistics());
+                }
+                session.enter();
+                try {
+                    if (!compile(sourceFile)) {
+                        failedFiles.add(sourceFile);
+                    }
+                } finally {
+                    session.exit();
+                    session.close();
+                }
+            }
+        } else {
+            compileConcurrently(sourceFiles, failedFiles, statistics, run);
+        }
+        errorHasOccurred = !failedFiles.isEmpty();
+        if (sourceFiles.size() > 1) {
+            printSummary(sourceFiles.size(), failedFiles, run);
+        }
+        if (statisticsFile != null) {
+            writeStatistics(Statistics.toJson(statistics, System.nanoTime()
+                    - startTime), run);
+        }
+    }
+
+    /**
+     * Compile the source files on a fork/join pool of the requested number of
+     * threads. The output and diagnostics of each file are buffered in its
+     * session, and are written out in the order in which the files were
+     * given, so they don't interleave.
+     * 
+     * @param sourceFiles
+     *            the source files to compile.
+     * @param failedFiles
+     *            list to which the source files in which errors were found
+     *            are added.
+     * @param statistics
+     *            list to which the statistics of the source files are added,
+     *            if they are being gathered.
+     * @param run
+     *            the session to which the buffered output is written.
+     */
+
+    private static void compileConcurrently(ArrayList<String> sourceFiles,
+            ArrayList<String> failedFiles, ArrayList<Statistics> statistics,
+            CompilationSession run) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            ArrayList<CompileTask> tasks = new ArrayList<CompileTask>();
+            for (String sourceFile : sourceFiles) {
+                Statistics fileStatistics = null;
+                if (statisticsFile != null) {
+                    fileStatistics = new Statistics(sourceFile);
+                    statistics.add(fileStatistics);
+                }
+                tasks.add(new CompileTask(sourceFile, fileStatistics, run));
+            }
+            for (CompileTask task : tasks) {
+                pool.execute(task);
+            }
+            for (CompileTask task : tasks) {
+                boolean succeeded = false;
+                try {
+                    succeeded = task.join();
+                } finally {
+                    task.writeOutput();
+                }
+                if (!succeeded) {
+                    failedFiles.add(task.sourceFile());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Compile a single source file in the current compilation session, using
+     * the options set in main().
+     * 
+     * @param sourceFile
+     *            the name of the source file.
+     * @return true if the file compiled without errors; false otherwise.
+     */
+
+    static boolean compile(String sourceFile) {
+        boolean errorHasOccurred = false;
+        CompilationSession session = CompilationSession.current();
         LookaheadScanner scanner = null;
         try {
             scanner = new LookaheadScanner(sourceFile);
         } catch (FileNotFoundException e) {
-            System.err.println("Error: file " + sourceFile + " not found.");
-            return;
+            session.err().println(
+                    "Error: file " + sourceFile + " not found.");
+            return false;
         }
 
         if (debugOption.equals("-t")) {
             // Just tokenize input and print the tokens to STDOUT
-            TokenInfo token;
             do {
                 scanner.next();
-                token = scanner.token();
-                System.out.printf("%d\t : %s = %s\n", token.line(), token
-                        .tokenRep(), token.image());
-            } while (token.kind() != EOF);
+                session.out().printf("%d\t : %s = %s\n", scanner.line(),
+                        scanner.kind(), scanner.image());
+            } while (scanner.kind() != EOF);
             errorHasOccurred |= scanner.errorHasOccured();
-            return;
+            return !errorHasOccurred;
         }
 
-        // Parse input
-        Parser parser = new Parser(scanner);
-        JCompilationUnit ast = parser.compilationUnit();
-        errorHasOccurred |= parser.errorHasOccurred();
-        if (debugOption.equals("-p")) {
-            ast.writeToStdOut(new PrettyPrinter());
-            return;
+        // Parse input, on several threads if asked to
+        session.start("parse");
+        JCompilationUnit ast;
+        if (parseThreads > 1) {
+            ParallelParser parser = new ParallelParser(scanner, parseThreads);
+            ast = parser.compilationUnit();
+            errorHasOccurred |= parser.errorHasOccurred();
+        } else {
+            Parser parser = new Parser(scanner);
+            ast = parser.compilationUnit();
+            errorHasOccurred |= parser.errorHasOccurred();
         }
-        if (errorHasOccurred) {
-            return;
+        session.stop("parse");
+        if (debugOption.equals("-p")) {
+            writeToStdOut(ast);
+            return !errorHasOccurred;
         }
 
+        // Syntax errors don't stop the compilation here: the parser has left
+        // out, or kept out of analysis, what it found them in (see
+        // Parser.recovered()), so the rest is analyzed for errors too. No
+        // code is generated, though.
+
         // Do pre-analysis
+        session.start("preAnalyze");
         ast.preAnalyze();
-        errorHasOccurred |= JAST.compilationUnit.errorHasOccurred();
+        session.stop("preAnalyze");
+        errorHasOccurred |= JAST.compilationUnit().errorHasOccurred();
         if (debugOption.equals("-pa")) {
-            ast.writeToStdOut(new PrettyPrinter());
-            return;
+            writeToStdOut(ast);
+            return !errorHasOccurred;
         }
-        if (errorHasOccurred) {
-            return;
+        if (JAST.compilationUnit().errorHasOccurred()) {
+            return false;
         }
 
         // Do analysis
+        session.start("analyze");
         ast.analyze(null);
-        errorHasOccurred |= JAST.compilationUnit.errorHasOccurred();
+        session.stop("analyze");
+        errorHasOccurred |= JAST.compilationUnit().errorHasOccurred();
         if (debugOption.equals("-a")) {
-            ast.writeToStdOut(new PrettyPrinter());
-            return;
+            writeToStdOut(ast);
+            return !errorHasOccurred;
         }
         if (errorHasOccurred) {
-            return;
+            return false;
         }
 
         // Generate JVM code
         CLEmitter clEmitter = new CLEmitter(!spimOutput);
-        clEmitter.destinationDir(outputDir);
+        clEmitter.destinationDir(session.file(outputDir).getPath());
+        session.start("codegen");
         ast.codegen(clEmitter);
+        session.stop("codegen");
+        session.count("classes", ast.clFiles().size());
+        for (CLFile clFile : ast.clFiles()) {
+            session.count("constantPoolEntries", clFile.constantPoolCount - 1);
+        }
         errorHasOccurred |= clEmitter.errorHasOccurred();
         if (errorHasOccurred) {
-            return;
+            return false;
         }
 
         // If SPIM output was asked for, convert the in-memory
         // JVM instructions to SPIM using the specified register
-        // allocation scheme.
+        // allocation scheme. The SPIM back end numbers blocks,
+        // instructions and registers using static counters, so only
+        // one source file at a time goes through it.
         if (spimOutput) {
-            NEmitter nEmitter = new NEmitter(sourceFile, ast.clFiles(),
-                    registerAllocation);
-            nEmitter.destinationDir(outputDir);
-            nEmitter.write();
-            errorHasOccurred |= nEmitter.errorHasOccurred();
+            synchronized (NEmitter.class) {
+                NEmitter nEmitter = new NEmitter(sourceFile, ast.clFiles(),
+                        registerAllocation);
+                nEmitter.destinationDir(session.file(outputDir).getPath());
+                session.start("spimWrite");
+                nEmitter.write();
+                session.stop("spimWrite");
+                errorHasOccurred |= nEmitter.errorHasOccurred();
+            }
+        }
+        return !errorHasOccurred;
+    }
+
+    /**
+     * Add the .java files under the specified directory (and its
+     * sub-directories) to the list of source files, in name order.
+     * 
+     * @param dir
+     *            the directory to search.
+     * @param name
+     *            the name by which the directory was given.
+     * @param sourceFiles
+     *            list to which the source files are added.
+     */
+
+    private static void addSourceFiles(File dir, String name,
+            ArrayList<String> sourceFiles) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String fileName = new File(name, file.getName()).getPath();
+            if (file.isDirectory()) {
+                addSourceFiles(file, fileName, sourceFiles);
+            } else if (file.getName().endsWith(".java")) {
+                sourceFiles.add(fileName);
+            }
+        }
+    }
+
+    /**
+     * Print a summary of a multi-file compilation to the diagnostics stream,
+     * listing the source files in which errors were found.
+     * 
+     * @param fileCount
+     *            number of source files compiled.
+     * @param failedFiles
+     *            the source files in which errors were found.
+     * @param run
+     *            the session to write to.
+     */
+
+    private static void printSummary(int fileCount,
+            ArrayList<String> failedFiles, CompilationSession run) {
+        run.err().printf("%d file(s) compiled, %d with errors\n", fileCount,
+                failedFiles.size());
+        for (String failedFile : failedFiles) {
+            run.err().printf("  %s: compilation failed\n", failedFile);
+        }
+    }
+
+    /**
+     * Write the specified AST to the output stream, as XML, through a buffered
+     * PrettyPrinter, since the ASTs of large sources run to many megabytes.
+     * 
+     * @param ast
+     *            the AST.
+     */
+
+    private static void writeToStdOut(JCompilationUnit ast) {
+        PrettyPrinter p = new PrettyPrinter(2, true);
+        ast.writeToStdOut(p);
+        p.flush();
+    }
+
+    /**
+     * Write the statistics gathered with -Xstats to the file given with the
+     * option, or to the diagnostics stream if no file was given.
+     * 
+     * @param json
+     *            the statistics, as a JSON document.
+     * @param run
+     *            the session to write to.
+     */
+
+    private static void writeStatistics(String json, CompilationSession run) {
+        if (statisticsFile.equals("")) {
+            run.err().println(json);
+            return;
+        }
+        try {
+            PrintWriter out = new PrintWriter(run.file(statisticsFile));
+            out.println(json);
+            out.close();
+        } catch (FileNotFoundException e) {
+            run.err().println("Error: cannot write to file " + statisticsFile);
         }
     }
 
@@ -172,16 +439,18 @@ public class Main {
     }
 
     /**
-     * Print command usage to STDOUT.
+     * Print command usage to the output stream.
      * 
      * @param caller
      *            denotes how this class is invoked.
+     * @param run
+     *            the session to write to.
      */
 
-    private static void printUsage(String caller) {
+    private static void printUsage(String caller, CompilationSession run) {
         String usage = "Usage: "
                 + caller
-                + " <options> <source file>\n"
+                + " <options> <source files and/or directories>\n"
                 + "where possible options include:\n"
                 + "  -t Only tokenize input and print tokens to STDOUT\n"
                 + "  -p Only parse input and print AST to STDOUT\n"
@@ -191,8 +460,102 @@ public class Main {
                 + "and print AST to STDOUT\n"
                 + "  -s <naive|linear|graph> Generate SPIM code\n"
                 + "  -r <num> Max. physical registers (1-18) available for allocation; default = 8\n"
+                + "  -j <num> Number of source files to compile concurrently; default = 1\n"
+                + "  -pj <num> Number of threads on which to parse the type declarations of each source file; default = 1\n"
+                + "  -Xstats[:<file>] Write per-phase timing and counts as JSON to STDERR (or <file>)\n"
                 + "  -d <dir> Specify where to place output files; default = .";
-        System.out.println(usage);
+        run.out().println(usage);
+    }
+
+}
+
+/**
+ * A task that compiles a single source file (see Main.compile()) in a
+ * compilation session of its own, buffering its output and diagnostics.
+ */
+
+class CompileTask extends RecursiveTask<Boolean> {
+
+    /** Tasks are never serialized, but RecursiveTask is Serializable. */
+    private static final long serialVersionUID = 1L;
+
+    /** The source file to compile. */
+    private String sourceFile;
+
+    /** Buffer for the output of the compilation. */
+    private ByteArrayOutputStream out;
+
+    /** Buffer for the diagnostics of the compilation. */
+    private ByteArrayOutputStream err;
+
+    /** Where statistics are gathered; null if they are not. */
+    private Statistics statistics;
+
+    /** The session that started the task. */
+    private CompilationSession run;
+
+    /**
+     * Construct a task for compiling the specified source file.
+     * 
+     * @param sourceFile
+     *            the name of the source file.
+     * @param statistics
+     *            where statistics are gathered; null if they are not.
+     * @param run
+     *            the session that started the task.
+     */
+
+    public CompileTask(String sourceFile, Statistics statistics,
+            CompilationSession run) {
+        this.sourceFile = sourceFile;
+        this.statistics = statistics;
+        this.run = run;
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+    }
+
+    /**
+     * Return the name of the source file.
+     * 
+     * @return the source file name.
+     */
+
+    public String sourceFile() {
+        return sourceFile;
+    }
+
+    /**
+     * Compile the source file.
+     * 
+     * @return true if the file compiled without errors; false otherwise.
+     */
+
+    protected Boolean compute() {
+        CompilationSession session = new CompilationSession(
+                new PrintStream(out, true), new PrintStream(err, true), run
+                        .directory());
+        session.statistics(statistics);
+        session.enter();
+        try {
+            return Main.compile(sourceFile);
+        } finally {
+            session.out().flush();
+            session.err().flush();
+            session.exit();
+            session.close();
+        }
+    }
+
+    /**
+     * Write the buffered output and diagnostics to the output and diagnostics
+     * streams of the session that started the task.
+     */
+
+    public void writeOutput() {
+        run.out().print(out.toString());
+        run.out().flush();
+        run.err().print(err.toString());
+        run.err().flush();
     }
 
 }
@@ -456,7 +456,7 @@ class NControlFlowGraph {
         desc = new String(((CLConstantUtf8Info) cp.cpItem(m.descriptorIndex)).b);
         basicBlocks = new ArrayList<NBasicBlock>();
         pcToBasicBlock = new HashMap<Integer, NBasicBlock>();
-        ArrayList<Integer> code = getByteCode();
+        CLByteBuffer code = getByteCode();
         ArrayList<NTuple> tuples = bytecodeToTuples(code);
         if (tuples.size() == 0) {
             return;
@@ -1453,7 +1453,7 @@ class NControlFlowGraph {
      * @return list of tuples.
      */
 
-    private ArrayList<NTuple> bytecodeToTuples(ArrayList<Integer> code) {
+    private ArrayList<NTuple> bytecodeToTuples(CLByteBuffer code) {
         ArrayList<NTuple> tuples = new ArrayList<NTuple>();
         for (int i = 0; i < code.size(); i++) {
             int pc = i;
@@ -1466,28 +1466,28 @@ class NControlFlowGraph {
             case 0:
                 break;
             case 1:
-                operandByte1 = code.get(++i).shortValue();
+                operandByte1 = (short) code.get(++i);
                 operands.add(operandByte1);
                 break;
             case 2:
-                operandByte1 = code.get(++i).shortValue();
-                operandByte2 = code.get(++i).shortValue();
+                operandByte1 = (short) code.get(++i);
+                operandByte2 = (short) code.get(++i);
                 operands.add(operandByte1);
                 operands.add(operandByte2);
                 break;
             case 3:
-                operandByte1 = code.get(++i).shortValue();
-                operandByte2 = code.get(++i).shortValue();
-                operandByte3 = code.get(++i).shortValue();
+                operandByte1 = (short) code.get(++i);
+                operandByte2 = (short) code.get(++i);
+                operandByte3 = (short) code.get(++i);
                 operands.add(operandByte1);
                 operands.add(operandByte2);
                 operands.add(operandByte3);
                 break;
             case 4:
-                operandByte1 = code.get(++i).shortValue();
-                operandByte2 = code.get(++i).shortValue();
-                operandByte3 = code.get(++i).shortValue();
-                operandByte4 = code.get(++i).shortValue();
+                operandByte1 = (short) code.get(++i);
+                operandByte2 = (short) code.get(++i);
+                operandByte3 = (short) code.get(++i);
+                operandByte4 = (short) code.get(++i);
                 operands.add(operandByte1);
                 operands.add(operandByte2);
                 operands.add(operandByte3);
@@ -1541,8 +1541,8 @@ class NControlFlowGraph {
      * @return JVM bytecode for the method denoted by this cfg.
      */
 
-    private ArrayList<Integer> getByteCode() {
-        ArrayList<Integer> code = null;
+    private CLByteBuffer getByteCode() {
+        CLByteBuffer code = null;
         for (CLAttributeInfo info : m.attributes) {
             if (info instanceof CLCodeAttribute) {
                 code = ((CLCodeAttribute) info).code;
@@ -1590,11 +1590,9 @@ class NControlFlowGraph {
      */
 
     private int numLocals() {
-        ArrayList<Integer> code = null;
         int numLocals = 0;
         for (CLAttributeInfo info : m.attributes) {
             if (info instanceof CLCodeAttribute) {
-                code = ((CLCodeAttribute) info).code;
                 numLocals = ((CLCodeAttribute) info).maxLocals;
                 break;
             }
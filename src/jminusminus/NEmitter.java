@@ -12,6 +12,7 @@ import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 /**
  * A class for generating native SPIM code.
@@ -38,7 +39,7 @@ public class NEmitter {
 
     /**
      * Report any error that occurs while creating/writing the spim file, to
-     * STDERR.
+     * the diagnostics stream of the current compilation session.
      * 
      * @param message
      *            message identifying the error.
@@ -47,8 +48,9 @@ public class NEmitter {
      */
 
     private void reportEmitterError(String message, Object... args) {
-        System.err.printf(message, args);
-        System.err.println();
+        CompilationSession.current().report(
+                new Diagnostic(Diagnostic.Kind.EMITTER, null, 0, String.format(
+                        message, args)));
         errorHasOccurred = true;
     }
 
@@ -130,10 +132,11 @@ public class NEmitter {
     public NEmitter(String sourceFile, ArrayList<CLFile> clFiles, String ra) {
         this.sourceFile = sourceFile.substring(sourceFile
                 .lastIndexOf(File.separator) + 1);
-        classes = new HashMap<CLFile, HashMap<CLMethodInfo, NControlFlowGraph>>();
+        classes = new LinkedHashMap<CLFile, HashMap<CLMethodInfo, NControlFlowGraph>>();
+        CompilationSession session = CompilationSession.current();
         for (CLFile clFile : clFiles) {
             CLConstantPool cp = clFile.constantPool;
-            HashMap<CLMethodInfo, NControlFlowGraph> methods = new HashMap<CLMethodInfo, NControlFlowGraph>();
+            HashMap<CLMethodInfo, NControlFlowGraph> methods = new LinkedHashMap<CLMethodInfo, NControlFlowGraph>();
             for (int i = 0; i < clFile.methodsCount; i++) {
                 CLMethodInfo m = clFile.methods.get(i);
 
@@ -141,16 +144,19 @@ public class NEmitter {
                 // Each block in the cfg, at the end of this step,
                 // has the JVM bytecode translated into tuple
                 // representation.
+                session.start("tuples");
                 NControlFlowGraph cfg = new NControlFlowGraph(cp, m);
 
                 // Write the tuples in cfg to STDOUT.
                 PrettyPrinter p = new PrettyPrinter();
                 p.printf("%s %s\n", cfg.name, cfg.desc);
                 cfg.writeTuplesToStdOut(p);
+                session.stop("tuples");
 
                 // Identify blocks in cfg that are loop heads and
                 // loop tails. Also, compute number of backward
                 // branches to blocks.
+                session.start("hir");
                 cfg.detectLoops(cfg.basicBlocks.get(0), null);
 
                 // Remove unreachable blocks from cfg.
@@ -174,9 +180,11 @@ public class NEmitter {
 
                 // Write the HIR instructions in cfg to STDOUT.
                 cfg.writeHirToStdOut(p);
+                session.stop("hir");
 
                 // Convert the HIR instructions in each block in the
                 // cfg to low-level (LIR) instructions.
+                session.start("lir");
                 cfg.hirToLir();
 
                 // Resolve phi functions;
@@ -190,12 +198,14 @@ public class NEmitter {
 
                 // Write the LIR instructions in cfg to STDOUT.
                 cfg.writeLirToStdOut(p);
+                session.stop("lir");
 
                 // Save the cfg for the method in a map keyed in by
                 // the CLMethodInfo object for the method.
                 methods.put(m, cfg);
 
                 // Perform register allocation.
+                session.start("allocation");
                 NRegisterAllocator regAllocator;
                 if (ra.equals("naive")) {
                     regAllocator = new NNaiveRegisterAllocator(cfg);
@@ -215,6 +225,8 @@ public class NEmitter {
 
                 // Write the LIR instructions in cfg to STDOUT.
                 cfg.writeLirToStdOut(p);
+                session.stop("allocation");
+                count(session, cfg);
             }
 
             // Store the cfgs for the methods in this class in a map.
@@ -222,6 +234,40 @@ public class NEmitter {
         }
     }
 
+    /**
+     * Add the number of basic blocks, virtual registers and spilled intervals
+     * in the specified cfg to the statistics of the specified session.
+     * 
+     * @param session
+     *            the compilation session.
+     * @param cfg
+     *            the control flow graph.
+     */
+
+    private void count(CompilationSession session, NControlFlowGraph cfg) {
+        if (session.statistics() == null) {
+            return;
+        }
+        session.count("basicBlocks", cfg.basicBlocks.size());
+        int virtualRegisters = 0;
+        for (NRegister register : cfg.registers) {
+            if (register instanceof NVirtualRegister) {
+                virtualRegisters++;
+            }
+        }
+        session.count("virtualRegisters", virtualRegisters);
+        int spills = 0;
+        if (cfg.intervals != null) {
+            for (NInterval interval : cfg.intervals) {
+                spills += interval.spill ? 1 : 0;
+                for (NInterval child : interval.children) {
+                    spills += child.spill ? 1 : 0;
+                }
+            }
+        }
+        session.count("spills", spills);
+    }
+
     /**
      * Set the destination directory for the SPIM files to the specified value.
      * 
@@ -0,0 +1,198 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+/**
+ * A table of the names (the images of identifiers and literals) scanned from
+ * a compilation unit. Each distinct name is stored once, as a String, and is
+ * given a number, its symbol; names are looked up straight from the scanner's
+ * characters, so a name that is already in the table costs no allocation.
+ *
+ * As each name has a single String, two names can be compared by reference
+ * (or by symbol) rather than character by character.
+ */
+
+class NameTable {
+
+    /** The names, by symbol. */
+    private String[] names;
+
+    /** The hash codes of the names, by symbol. */
+    private int[] hashes;
+
+    /** Number of names in the table. */
+    private int size;
+
+    /**
+     * Open-addressed hash table of the symbols, each plus 1 so that 0 marks
+     * an empty slot. Its length is a power of 2, at least twice size.
+     */
+    private int[] slots;
+
+    /**
+     * Construct an empty NameTable.
+     */
+
+    public NameTable() {
+        names = new String[256];
+        hashes = new int[256];
+        slots = new int[512];
+        size = 0;
+    }
+
+    /**
+     * Return the symbol of the name formed by the specified characters, adding
+     * the name to the table if it is not there yet.
+     *
+     * @param chars
+     *            array holding the characters.
+     * @param start
+     *            index of the first character.
+     * @param length
+     *            number of characters.
+     * @return the symbol of the name.
+     */
+
+    public int intern(char[] chars, int start, int length) {
+        // The same hash code as String's, so it can be checked against one
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int mask = slots.length - 1;
+        for (int i = mix(hash) & mask;; i = (i + 1) & mask) {
+            int slot = slots[i];
+            if (slot == 0) {
+                int symbol = add(new String(chars, start, length), hash);
+                slots[i] = symbol + 1;
+                if (2 * size > slots.length) {
+                    rehash();
+                }
+                return symbol;
+            }
+            if (hashes[slot - 1] == hash
+                    && matches(names[slot - 1], chars, start, length)) {
+                return slot - 1;
+            }
+        }
+    }
+
+    /**
+     * Return the symbol of the specified name, adding the name to the table if
+     * it is not there yet.
+     *
+     * @param name
+     *            the name.
+     * @return the symbol of the name.
+     */
+
+    public int intern(String name) {
+        return intern(name.toCharArray(), 0, name.length());
+    }
+
+    /**
+     * Return the name with the specified symbol.
+     *
+     * @param symbol
+     *            the symbol.
+     * @return the name.
+     */
+
+    public String name(int symbol) {
+        return names[symbol];
+    }
+
+    /**
+     * Return the number of names in the table.
+     *
+     * @return the number of names.
+     */
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add the specified name, with the specified hash code, giving it the next
+     * symbol.
+     *
+     * @param name
+     *            the name.
+     * @param hash
+     *            its hash code.
+     * @return its symbol.
+     */
+
+    private int add(String name, int hash) {
+        if (size == names.length) {
+            String[] grownNames = new String[2 * size];
+            System.arraycopy(names, 0, grownNames, 0, size);
+            names = grownNames;
+            int[] grownHashes = new int[2 * size];
+            System.arraycopy(hashes, 0, grownHashes, 0, size);
+            hashes = grownHashes;
+        }
+        names[size] = name;
+        hashes[size] = hash;
+        return size++;
+    }
+
+    /**
+     * Double the hash table, and re-enter the symbols in it.
+     */
+
+    private void rehash() {
+        slots = new int[2 * slots.length];
+        int mask = slots.length - 1;
+        for (int symbol = 0; symbol < size; symbol++) {
+            int i = mix(hashes[symbol]) & mask;
+            while (slots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = symbol + 1;
+        }
+    }
+
+    /**
+     * Spread the bits of the specified hash code, so that its lower bits are
+     * good enough for indexing the hash table.
+     *
+     * @param hash
+     *            the hash code.
+     * @return the spread hash code.
+     */
+
+    private static int mix(int hash) {
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        return hash ^ (hash >>> 7) ^ (hash >>> 4);
+    }
+
+    /**
+     * Return true if the specified name is formed by the specified
+     * characters; false otherwise.
+     *
+     * @param name
+     *            the name.
+     * @param chars
+     *            array holding the characters.
+     * @param start
+     *            index of the first character.
+     * @param length
+     *            number of characters.
+     * @return true or false.
+     */
+
+    private static boolean matches(String name, char[] chars, int start,
+            int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,398 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A parser that parses the type declarations of a compilation unit on several
+ * threads, for large compilation units (generated ones, say) with many type
+ * declarations.
+ *
+ * A quick pre-scan of the source, which only follows comments, literals and
+ * braces, finds where each top-level type declaration ends (at the closing
+ * brace that balances its first opening one). The declarations are then split
+ * into runs, a few per thread, and each run is parsed by a ParseTask with a
+ * LookaheadScanner and a Parser of its own, over its part of the source; the
+ * source itself is shared, not copied. The first run also holds the package
+ * and import declarations. The type declarations parsed are merged into the
+ * compilation unit in order, so the AST is the one Parser.compilationUnit()
+ * would give.
+ *
+ * If any run does not parse cleanly, to the number of declarations the
+ * pre-scan found for it, then the pre-scan was misled by an error in the
+ * source, and the whole source is parsed again on the current thread, which
+ * reports the errors as Parser.compilationUnit() would.
+ */
+
+class ParallelParser {
+
+    /** Scanner for the whole source. */
+    private LookaheadScanner scanner;
+
+    /** Number of threads to parse on. */
+    private int threads;
+
+    /** Whether a parser error has been found. */
+    private boolean errorHasOccurred;
+
+    /**
+     * Construct a ParallelParser for the source of the specified scanner,
+     * which has not been used yet.
+     *
+     * @param scanner
+     *            scanner for the whole source.
+     * @param threads
+     *            number of threads to parse on; if the current thread is a
+     *            worker of a fork/join pool (see Main.compileConcurrently()),
+     *            the threads of that pool are used instead.
+     */
+
+    public ParallelParser(LookaheadScanner scanner, int threads) {
+        this.scanner = scanner;
+        this.threads = threads;
+    }
+
+    /**
+     * Has a parser error occurred?
+     *
+     * @return true or false.
+     */
+
+    public boolean errorHasOccurred() {
+        return errorHasOccurred;
+    }
+
+    /**
+     * Parse the compilation unit, as Parser.compilationUnit() does.
+     *
+     * @return an AST for the compilation unit.
+     */
+
+    public JCompilationUnit compilationUnit() {
+        if (threads > 1) {
+            char[] source = scanner.source();
+            int[] ends = declarationEnds(source);
+            if (ends.length > 1) {
+                JCompilationUnit compilationUnit = parse(source, ends);
+                if (compilationUnit != null) {
+                    return compilationUnit;
+                }
+            }
+        }
+        Parser parser = new Parser(scanner);
+        JCompilationUnit compilationUnit = parser.compilationUnit();
+        errorHasOccurred = parser.errorHasOccurred();
+        return compilationUnit;
+    }
+
+    /**
+     * Parse the specified source in runs of type declarations, on several
+     * threads.
+     *
+     * @param source
+     *            the source.
+     * @param ends
+     *            offsets just past the ends of the type declarations.
+     * @return an AST for the compilation unit, or null if a run did not
+     *         parse cleanly.
+     */
+
+    private JCompilationUnit parse(char[] source, int[] ends) {
+        CompilationSession session = CompilationSession.current();
+        int runs = Math.min(ends.length, 4 * threads);
+        int[] starts = new int[runs];
+        int[] counts = new int[runs];
+        for (int i = 0; i < runs; i++) {
+            int first = (int) ((long) i * ends.length / runs);
+            int last = (int) ((long) (i + 1) * ends.length / runs);
+            starts[i] = first == 0 ? 0 : ends[first - 1];
+            counts[i] = last - first;
+        }
+        int[] lines = lines(source, starts);
+        ArrayList<ParseTask> tasks = new ArrayList<ParseTask>();
+        for (int i = 0; i < runs; i++) {
+            int end = i == runs - 1 ? source.length : starts[i + 1];
+            tasks.add(new ParseTask(scanner.fileName(), source, starts[i],
+                    end, lines[i], counts[i],
+                    session.statistics() != null));
+        }
+        if (ForkJoinTask.inForkJoinPool()) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                for (ParseTask task : tasks) {
+                    pool.execute(task);
+                }
+                for (ParseTask task : tasks) {
+                    task.join();
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        for (ParseTask task : tasks) {
+            if (!task.join()) {
+                return null;
+            }
+        }
+
+        // Only now, since the source is parsed (and counted) again if a run
+        // did not parse cleanly
+        for (ParseTask task : tasks) {
+            if (session.statistics() != null) {
+                session.statistics().add(task.statistics());
+            }
+        }
+        JCompilationUnit compilationUnit = tasks.get(0).compilationUnit();
+        for (int i = 1; i < runs; i++) {
+            compilationUnit.typeDeclarations().addAll(
+                    tasks.get(i).typeDeclarations());
+        }
+        session.compilationUnit(compilationUnit);
+        return compilationUnit;
+    }
+
+    /**
+     * Return the offsets just past the closing braces of the top-level type
+     * declarations in the specified source. Comments, and string and
+     * character literals, are skipped as the Scanner skips them.
+     *
+     * @param source
+     *            the source.
+     * @return the offsets, in order; none if a closing brace is unbalanced.
+     */
+
+    static int[] declarationEnds(char[] source) {
+        int[] ends = new int[16];
+        int count = 0;
+        int depth = 0;
+        int n = source.length;
+        int i = 0;
+        while (i < n) {
+            char c = source[i++];
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                if (depth == 0) {
+                    return new int[0];
+                }
+                if (--depth == 0) {
+                    if (count == ends.length) {
+                        int[] grown = new int[2 * count];
+                        System.arraycopy(ends, 0, grown, 0, count);
+                        ends = grown;
+                    }
+                    ends[count++] = i;
+                }
+            } else if (c == '/' && i < n && source[i] == '/') {
+                while (i < n && source[i] != '\n' && source[i] != '\r') {
+                    i++;
+                }
+            } else if (c == '/' && i < n && source[i] == '*') {
+                // As in the Scanner, the character after /* can't start
+                // the closing */
+                i += 2;
+                char last = '-';
+                while (i < n) {
+                    char d = source[i++];
+                    if (d == '\n' || d == '\r') {
+                        last = '-';
+                    } else if (last == '*' && d == '/') {
+                        break;
+                    } else {
+                        last = d;
+                    }
+                }
+            } else if (c == '"') {
+                while (i < n && source[i] != '"' && source[i] != '\n'
+                        && source[i] != '\r') {
+                    i += source[i] == '\\' ? 2 : 1;
+                }
+                i++;
+            } else if (c == '\'') {
+                i += i < n && source[i] == '\\' ? 2 : 1;
+                if (i < n && source[i] == '\'') {
+                    i++;
+                }
+            }
+        }
+        int[] trimmed = new int[count];
+        System.arraycopy(ends, 0, trimmed, 0, count);
+        return trimmed;
+    }
+
+    /**
+     * Return the lines, in the specified source, of the specified offsets,
+     * counting new lines as a CharReader does.
+     *
+     * @param source
+     *            the source.
+     * @param offsets
+     *            the offsets, in order.
+     * @return the lines of the offsets.
+     */
+
+    private static int[] lines(char[] source, int[] offsets) {
+        int[] lines = new int[offsets.length];
+        int line = 1;
+        int i = 0;
+        for (int k = 0; k < offsets.length; k++) {
+            for (; i < offsets[k]; i++) {
+                if (source[i] == '\n' || source[i] == '\r'
+                        && (i + 1 == source.length || source[i + 1] != '\n')) {
+                    line++;
+                }
+            }
+            lines[k] = line;
+        }
+        return lines;
+    }
+
+}
+
+/**
+ * A task that parses a run of type declarations (see ParallelParser), in a
+ * compilation session of its own whose output and diagnostics are discarded.
+ */
+
+class ParseTask extends RecursiveTask<Boolean> {
+
+    /** Version of the serialized form, which is never used. */
+    private static final long serialVersionUID = 1L;
+
+    /** Name of the source file. */
+    private String fileName;
+
+    /** The whole source. */
+    private char[] source;
+
+    /** Offset of the start of the run. */
+    private int start;
+
+    /** Offset of the end of the run. */
+    private int end;
+
+    /** Line at which the run starts. */
+    private int line;
+
+    /** Number of type declarations in the run. */
+    private int count;
+
+    /** Where statistics are gathered; null if they are not. */
+    private Statistics statistics;
+
+    /** AST for the compilation unit, if the run starts the source. */
+    private JCompilationUnit compilationUnit;
+
+    /** The type declarations parsed. */
+    private ArrayList<JAST> typeDeclarations;
+
+    /**
+     * Construct a task for parsing the specified run of type declarations.
+     *
+     * @param fileName
+     *            name of the source file.
+     * @param source
+     *            the whole source.
+     * @param start
+     *            offset of the start of the run; if it is 0, the run starts
+     *            the compilation unit, with its package and imports.
+     * @param end
+     *            offset of the end of the run.
+     * @param line
+     *            line at which the run starts.
+     * @param count
+     *            number of type declarations in the run.
+     * @param statistics
+     *            whether statistics are gathered.
+     */
+
+    public ParseTask(String fileName, char[] source, int start, int end,
+            int line, int count, boolean statistics) {
+        this.fileName = fileName;
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        this.line = line;
+        this.count = count;
+        this.statistics = statistics ? new Statistics(fileName) : null;
+    }
+
+    /**
+     * Return the AST for the compilation unit, if the run starts the source.
+     *
+     * @return the AST, or null.
+     */
+
+    public JCompilationUnit compilationUnit() {
+        return compilationUnit;
+    }
+
+    /**
+     * Return the type declarations parsed.
+     *
+     * @return list of type declarations.
+     */
+
+    public ArrayList<JAST> typeDeclarations() {
+        return typeDeclarations;
+    }
+
+    /**
+     * Return the statistics gathered in parsing the run.
+     *
+     * @return the statistics, or null if they are not gathered.
+     */
+
+    public Statistics statistics() {
+        return statistics;
+    }
+
+    /**
+     * Parse the run.
+     *
+     * @return true if the run parsed cleanly, to the number of type
+     *         declarations expected; false otherwise.
+     */
+
+    protected Boolean compute() {
+        PrintStream discard = new PrintStream(new OutputStream() {
+            public void write(int b) {
+            }
+        });
+        CompilationSession session = new CompilationSession(discard, discard);
+        session.statistics(statistics);
+        session.enter();
+        try {
+            LookaheadScanner scanner = new LookaheadScanner(fileName, source,
+                    start, end, line);
+            Parser parser = new Parser(scanner);
+            if (start == 0) {
+                compilationUnit = parser.compilationUnit();
+                typeDeclarations = compilationUnit.typeDeclarations();
+            } else {
+                typeDeclarations = parser.typeDeclarations();
+            }
+            if (statistics != null && end < source.length) {
+                // The EOF ending the run is not a token of the source
+                statistics.count("tokens", -1);
+            }
+            return !parser.errorHasOccurred() && !scanner.errorHasOccured()
+                    && typeDeclarations.size() == count;
+        } catch (RuntimeException e) {
+            // The sequential parse will come to the same grief
+            return false;
+        } finally {
+            session.exit();
+        }
+    }
+
+}
@@ -3,6 +3,8 @@
 package jminusminus;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 
 import static jminusminus.TokenKind.*;
 
@@ -24,6 +26,47 @@ public class Parser {
 	/** Wheter we have recovered from a parser error. */
 	private boolean isRecovered;
 
+	/** Number of parser errors found, including those not reported. */
+	private int errors;
+
+	/** Token position at which the last error reported was found. */
+	private int errorPosition;
+
+	/**
+	 * Memo table of the results of lookahead predicates, direct mapped: the slot
+	 * for a predicate at a token position is found from the two, and records
+	 * the position it was computed at, which is then checked on a lookup.
+	 */
+	private int[] memoPositions;
+
+	/** Results of the lookahead predicates in the memo table. */
+	private boolean[] memoResults;
+
+	/**
+	 * Extent of the declaration being parsed, in which the extents of the
+	 * declarations in it are recorded; null if extents are not being recorded
+	 * (see IncrementalParser).
+	 */
+	private DeclarationExtent extent;
+
+	/** Number of positions in the memo table (a power of 2). */
+	private static final int MEMO_SIZE = 256;
+
+	/** Lookahead predicates whose results are memoized. */
+	private static final int IDENT_LPAREN = 0, CAST = 1, LOCAL_VARIABLE_DECLARATION = 2, FOR_EACH_EXPRESSION = 3,
+			REFERENCE_TYPE = 4, DIMS = 5, PREDICATES = 6;
+
+	/** Tokens that start a statement, at which recovery from an error may stop. */
+	private static final EnumSet<TokenKind> STATEMENT_STARTERS = EnumSet.of(IF, WHILE, FOR, TRY, THROW, RETURN);
+
+	/** Tokens that start a member declaration, at which recovery may stop. */
+	private static final EnumSet<TokenKind> MEMBER_STARTERS = EnumSet.of(PUBLIC, PROTECTED, PRIVATE, STATIC,
+			ABSTRACT);
+
+	/** Tokens that start a type declaration, at which recovery may stop. */
+	private static final EnumSet<TokenKind> TYPE_STARTERS = EnumSet.of(PUBLIC, PROTECTED, PRIVATE, STATIC, ABSTRACT,
+			CLASS, INTERFACE);
+
 	/**
 	 * Construct a parser from the given lexical analyzer.
 	 * 
@@ -34,6 +77,11 @@ public class Parser {
 		this.scanner = scanner;
 		isInError = false;
 		isRecovered = true;
+		errors = 0;
+		errorPosition = -1;
+		memoPositions = new int[MEMO_SIZE * PREDICATES];
+		Arrays.fill(memoPositions, -1);
+		memoResults = new boolean[MEMO_SIZE * PREDICATES];
 		scanner.next(); // Prime the pump
 	}
 
@@ -59,7 +107,7 @@ public class Parser {
 	 */
 
 	private boolean see(TokenKind sought) {
-		return (sought == scanner.token().kind());
+		return (sought == scanner.kind());
 	}
 
 	/**
@@ -85,32 +133,160 @@ public class Parser {
 	 * we succeed, scan the token and go into a "isRecovered" state. If we fail,
 	 * then what we do next depends on whether or not we're currently in a
 	 * "isRecovered" state: if so, we report the error and go into an "Unrecovered"
-	 * state; if not, we repeatedly scan tokens until we find the one we're looking
-	 * for (or EOF) and then return to a "isRecovered" state. This gives us a kind
-	 * of poor man's syntactic error recovery. The strategy is due to David Turner
-	 * and Ron Morrison.
+	 * state; if not, we carry on as if the token had been there, without reporting
+	 * anything. The strategy is due to David Turner and Ron Morrison. The parser
+	 * then gets back in step with the input at the end of the statement, member
+	 * declaration or type declaration in which the error was found (see
+	 * recover()), rather than wherever the token sought happens to turn up next.
 	 * 
 	 * @param sought the token we're looking for.
 	 */
 
 	private void mustBe(TokenKind sought) {
-		if (scanner.token().kind() == sought) {
+		if (scanner.kind() == sought) {
 			scanner.next();
 			isRecovered = true;
-		} else if (isRecovered) {
-			isRecovered = false;
-			reportParserError("%s found where %s sought", scanner.token().image(), sought.image());
 		} else {
-			// Do not report the (possibly spurious) error,
-			// but rather attempt to recover by forcing a match.
-			while (!see(sought) && !see(EOF)) {
-				scanner.next();
+			reportParserError("%s found where %s sought", scanner.image(), sought.image());
+		}
+	}
+
+	/**
+	 * Recover from an error found in a statement, member declaration or type
+	 * declaration that started at the specified token position, by skipping to its
+	 * likely end (panic mode): past a semicolon, or past a closing brace that
+	 * balances one opened since the error, or to a closing brace that closes the
+	 * enclosing block, or to one of the specified tokens that start the next such
+	 * construct; braces opened since the error are skipped in full. At least one
+	 * token is skipped if the erroneous construct consumed none, so that the
+	 * parser cannot get stuck. Nothing is skipped if the construct ended where
+	 * the error was found, at the start of a line: a token missing at the end
+	 * of the previous line (a semicolon, say) was taken as if it were there, and
+	 * the next construct starts here, so that errors in it are reported too.
+	 * 
+	 * @param start    token position at which the erroneous construct started.
+	 * @param starters tokens that start the next construct.
+	 */
+
+	private void recover(int start, EnumSet<TokenKind> starters) {
+		if (scanner.position() == errorPosition && scanner.position() != start
+				&& scanner.line() > scanner.previousToken().line()) {
+			isRecovered = true;
+			return;
+		}
+		int depth = 0;
+		while (!see(EOF)) {
+			if (depth == 0 && scanner.position() != start && (see(RCURLY) || starters.contains(scanner.kind()))) {
+				break;
 			}
-			if (see(sought)) {
+			if (have(LCURLY)) {
+				depth++;
+			} else if (have(RCURLY)) {
+				if (depth > 0 && --depth == 0) {
+					break;
+				}
+			} else if (have(SEMI)) {
+				if (depth == 0) {
+					break;
+				}
+			} else {
 				scanner.next();
-				isRecovered = true;
 			}
 		}
+		isRecovered = true;
+	}
+
+	/**
+	 * Return the specified member declaration as it is to be analyzed, in view of
+	 * the errors found in parsing it. If there were errors before its body (or in
+	 * it, if it has no body), it is left out: its name, its type or its parameters
+	 * may be wrong. If there were errors only in the body of a method or
+	 * constructor, the declaration is kept, so that uses of it are still analyzed,
+	 * but its body is not analyzed.
+	 * 
+	 * @param member the member declaration.
+	 * @param before number of errors found before the declaration.
+	 * @param header number of errors found before its body, if it has one, or
+	 *               after it otherwise.
+	 * @return the member declaration, or null if it is left out.
+	 */
+
+	private JMember recovered(JMember member, int before, int header) {
+		if (header > before) {
+			return null;
+		}
+		if (errors > header) {
+			((JMethodDeclaration) member).bodyIsErroneous();
+		}
+		return member;
+	}
+
+	/**
+	 * Record the extents of the declarations parsed from now on, those of type
+	 * declarations (or, when parsing members only, of members) in the specified
+	 * extent, and those of members in the extents of their types.
+	 * 
+	 * @param root extent in which the extents of the outermost declarations are
+	 *             recorded.
+	 */
+
+	void recordExtents(DeclarationExtent root) {
+		extent = root;
+	}
+
+	/**
+	 * If extents are being recorded, start recording that of a declaration that
+	 * starts at the current token, within the extent of the declaration being
+	 * parsed.
+	 * 
+	 * @return the extent, or null if extents are not being recorded.
+	 */
+
+	private DeclarationExtent beginExtent() {
+		if (extent == null) {
+			return null;
+		}
+		if (extent.members.isEmpty()) {
+			extent.header = extent.diagnostics.size();
+		}
+		DeclarationExtent declared = new DeclarationExtent(extent, scanner.offset(), scanner.line());
+		declared.isRecoveredAtStart = isRecovered;
+		declared.errors = errors;
+		extent = declared;
+		CompilationSession.current().collect(extent.created);
+		return extent;
+	}
+
+	/**
+	 * Finish recording the specified extent, of the specified declaration, which
+	 * ends at the previous token.
+	 * 
+	 * @param declared    the extent, or null if extents are not being recorded.
+	 * @param declaration the declaration; null if it could not be parsed.
+	 */
+
+	private void endExtent(DeclarationExtent declared, JAST declaration) {
+		if (declared == null) {
+			return;
+		}
+		declared.end = scanner.previousEnd();
+		declared.declaration = declaration;
+		declared.errors = errors - declared.errors;
+		declared.lookahead = scanner.lookedTo() - declared.end;
+		extent = declared.parent;
+		extent.members.add(declared);
+		CompilationSession.current().collect(extent.created);
+	}
+
+	/**
+	 * Return the number of parser errors found so far, including those not
+	 * reported.
+	 * 
+	 * @return the number of errors.
+	 */
+
+	int errors() {
+		return errors;
 	}
 
 	/**
@@ -129,7 +305,8 @@ public class Parser {
 	}
 
 	/**
-	 * Report a syntax error.
+	 * Report a syntax error, unless the parser has not yet recovered from an
+	 * earlier one.
 	 * 
 	 * @param message message identifying the error.
 	 * @param args    related values.
@@ -137,16 +314,57 @@ public class Parser {
 
 	private void reportParserError(String message, Object... args) {
 		isInError = true;
-		isRecovered = false;
-		System.err.printf("%s:%d: ", scanner.fileName(), scanner.token().line());
-		System.err.printf(message, args);
-		System.err.println();
+		errors++;
+		if (isRecovered) {
+			// Errors found before recovering from one are likely spurious
+			isRecovered = false;
+			errorPosition = scanner.position();
+			Diagnostic diagnostic = new Diagnostic(Diagnostic.Kind.SYNTAX, scanner.fileName(), scanner.line(),
+					String.format(message, args));
+			CompilationSession.current().report(diagnostic);
+			if (extent != null) {
+				extent.diagnostics.add(diagnostic);
+			}
+		}
 	}
 
 	// ////////////////////////////////////////////////
 	// Lookahead /////////////////////////////////////
 	// ////////////////////////////////////////////////
 
+	// The lookahead predicates below that scan ahead are memoized (packrat
+	// style): each see...() consults the memo table, and only if the predicate
+	// has not been decided at the current token position does it run the
+	// lookAhead...() that scans. A predicate is then decided at most once per
+	// position, however often the parser asks. The table only remembers the
+	// positions within MEMO_SIZE tokens of each other, which is as far as the
+	// parser ever backs up.
+
+	/**
+	 * Return the slot in the memo table for the specified predicate at the
+	 * current token position.
+	 * 
+	 * @param predicate the predicate.
+	 * @return the slot.
+	 */
+
+	private int memoSlot(int predicate) {
+		return (scanner.position() & (MEMO_SIZE - 1)) * PREDICATES + predicate;
+	}
+
+	/**
+	 * Record the specified result of a predicate at the current token position
+	 * in the specified slot of the memo table.
+	 * 
+	 * @param slot   the slot.
+	 * @param result the result.
+	 */
+
+	private void memoize(int slot, boolean result) {
+		memoPositions[slot] = scanner.position();
+		memoResults[slot] = result;
+	}
+
 	/**
 	 * Are we looking at an IDENTIFIER followed by a LPAREN? Look ahead to find out.
 	 * 
@@ -154,6 +372,21 @@ public class Parser {
 	 */
 
 	private boolean seeIdentLParen() {
+		int slot = memoSlot(IDENT_LPAREN);
+		if (memoPositions[slot] != scanner.position()) {
+			memoize(slot, lookAheadIdentLParen());
+		}
+		return memoResults[slot];
+	}
+
+	/**
+	 * Look ahead to see if we're looking at an IDENTIFIER followed by a LPAREN, without consulting the memo
+	 * table; see seeIdentLParen().
+	 * 
+	 * @return true or false.
+	 */
+
+	private boolean lookAheadIdentLParen() {
 		scanner.recordPosition();
 		boolean result = have(IDENTIFIER) && see(LPAREN);
 		scanner.returnToPosition();
@@ -173,6 +406,21 @@ public class Parser {
 	 */
 
 	private boolean seeCast() {
+		int slot = memoSlot(CAST);
+		if (memoPositions[slot] != scanner.position()) {
+			memoize(slot, lookAheadCast());
+		}
+		return memoResults[slot];
+	}
+
+	/**
+	 * Look ahead to see if we're looking at a cast, without consulting the memo
+	 * table; see seeCast().
+	 * 
+	 * @return true or false.
+	 */
+
+	private boolean lookAheadCast() {
 		scanner.recordPosition();
 		if (!have(LPAREN)) {
 			scanner.returnToPosition();
@@ -223,6 +471,21 @@ public class Parser {
 	 */
 
 	private boolean seeLocalVariableDeclaration() {
+		int slot = memoSlot(LOCAL_VARIABLE_DECLARATION);
+		if (memoPositions[slot] != scanner.position()) {
+			memoize(slot, lookAheadLocalVariableDeclaration());
+		}
+		return memoResults[slot];
+	}
+
+	/**
+	 * Look ahead to see if we're looking at a local variable declaration, without consulting the memo
+	 * table; see seeLocalVariableDeclaration().
+	 * 
+	 * @return true or false.
+	 */
+
+	private boolean lookAheadLocalVariableDeclaration() {
 		scanner.recordPosition();
 		if (have(IDENTIFIER)) {
 			// A qualified identifier is ok
@@ -271,6 +534,21 @@ public class Parser {
 	 */
 
 	private boolean seeForEachExpression() {
+		int slot = memoSlot(FOR_EACH_EXPRESSION);
+		if (memoPositions[slot] != scanner.position()) {
+			memoize(slot, lookAheadForEachExpression());
+		}
+		return memoResults[slot];
+	}
+
+	/**
+	 * Look ahead to see if we're looking at a for each expression, without consulting the memo
+	 * table; see seeForEachExpression().
+	 * 
+	 * @return true or false.
+	 */
+
+	private boolean lookAheadForEachExpression() {
 		scanner.recordPosition();
 		if (!haveReferenceType()) {
 			if (seeBasicType()) {
@@ -323,6 +601,21 @@ public class Parser {
 	 */
 
 	private boolean seeReferenceType() {
+		int slot = memoSlot(REFERENCE_TYPE);
+		if (memoPositions[slot] != scanner.position()) {
+			memoize(slot, lookAheadReferenceType());
+		}
+		return memoResults[slot];
+	}
+
+	/**
+	 * Look ahead to see if we're looking at a reference type, without consulting the memo
+	 * table; see seeReferenceType().
+	 * 
+	 * @return true or false.
+	 */
+
+	private boolean lookAheadReferenceType() {
 		if (see(IDENTIFIER)) {
 			return true;
 		} else {
@@ -372,6 +665,21 @@ public class Parser {
 	 */
 
 	private boolean seeDims() {
+		int slot = memoSlot(DIMS);
+		if (memoPositions[slot] != scanner.position()) {
+			memoize(slot, lookAheadDims());
+		}
+		return memoResults[slot];
+	}
+
+	/**
+	 * Look ahead to see if we're looking at [], without consulting the memo
+	 * table; see seeDims().
+	 * 
+	 * @return true or false.
+	 */
+
+	private boolean lookAheadDims() {
 		scanner.recordPosition();
 		boolean result = have(LBRACK) && see(RBRACK);
 		scanner.returnToPosition();
@@ -397,7 +705,7 @@ public class Parser {
 	 */
 
 	public JCompilationUnit compilationUnit() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		TypeName packageName = null; // Default
 		if (have(PACKAGE)) {
 			packageName = qualifiedIdentifier();
@@ -405,16 +713,14 @@ public class Parser {
 		}
 		ArrayList<TypeName> imports = new ArrayList<TypeName>();
 		while (have(IMPORT)) {
-			imports.add(qualifiedIdentifier());
+			int before = errors;
+			TypeName imported = qualifiedIdentifier();
 			mustBe(SEMI);
-		}
-		ArrayList<JAST> typeDeclarations = new ArrayList<JAST>();
-		while (!see(EOF)) {
-			JAST typeDeclaration = typeDeclaration();
-			if (typeDeclaration != null) {
-				typeDeclarations.add(typeDeclaration);
+			if (errors == before) {
+				imports.add(imported);
 			}
 		}
+		ArrayList<JAST> typeDeclarations = typeDeclarations();
 		mustBe(EOF);
 		return new JCompilationUnit(scanner.fileName(), line, packageName, imports, typeDeclarations);
 	}
@@ -430,16 +736,69 @@ public class Parser {
 	 */
 
 	private TypeName qualifiedIdentifier() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		mustBe(IDENTIFIER);
-		String qualifiedIdentifier = scanner.previousToken().image();
+		return qualifiedIdentifier(line, scanner.previousImage());
+	}
+
+	/**
+	 * Parse the rest of a qualified identifier whose first identifier has been
+	 * scanned.
+	 *
+	 * @param line  line in which the qualified identifier occurs.
+	 * @param first the first identifier.
+	 * @return an instance of TypeName.
+	 */
+
+	private TypeName qualifiedIdentifier(int line, String first) {
+		String qualifiedIdentifier = first;
 		while (have(DOT)) {
 			mustBe(IDENTIFIER);
-			qualifiedIdentifier += "." + scanner.previousToken().image();
+			qualifiedIdentifier += "." + scanner.previousImage();
 		}
 		return new TypeName(line, qualifiedIdentifier);
 	}
 
+	/**
+	 * Parse the type declarations in a compilation unit, up to the end of the
+	 * input.
+	 * 
+	 * <pre>
+	 *   typeDeclarations ::= {typeDeclaration} EOF
+	 * </pre>
+	 * 
+	 * @return list of type declarations.
+	 */
+
+	ArrayList<JAST> typeDeclarations() {
+		ArrayList<JAST> typeDeclarations = new ArrayList<JAST>();
+		while (!see(EOF)) {
+			JAST typeDeclaration = recoveredTypeDeclaration();
+			if (typeDeclaration != null) {
+				typeDeclarations.add(typeDeclaration);
+			}
+		}
+		return typeDeclarations;
+	}
+
+	/**
+	 * Parse a type declaration, one of those in a compilation unit, and recover
+	 * from any error in it, so that the next one can be parsed.
+	 * 
+	 * @return an AST for the type declaration, or null if it could not be parsed.
+	 */
+
+	JAST recoveredTypeDeclaration() {
+		DeclarationExtent declared = beginExtent();
+		int start = scanner.position();
+		JAST typeDeclaration = typeDeclaration();
+		if (!isRecovered) {
+			recover(start, TYPE_STARTERS);
+		}
+		endExtent(declared, typeDeclaration);
+		return typeDeclaration;
+	}
+
 	/**
 	 * Parse a type declaration.
 	 * 
@@ -541,14 +900,16 @@ public class Parser {
 	 * extends the superclass java.lang.Object.
 	 * 
 	 * @param mods the class modifiers.
-	 * @return an AST for a classDeclaration.
+	 * @return an AST for a classDeclaration, or null if errors were found before
+	 *         its body (see recovered()).
 	 */
 
 	private JClassDeclaration classDeclaration(ArrayList<String> mods) {
-		int line = scanner.token().line();
+		int line = scanner.line();
+		int before = errors;
 		mustBe(CLASS);
 		mustBe(IDENTIFIER);
-		String name = scanner.previousToken().image();
+		String name = scanner.previousImage();
 		Type superClass;
 		ArrayList<Type> implementsTypes = new ArrayList<Type>();
 		if (have(EXTENDS)) {
@@ -562,7 +923,9 @@ public class Parser {
 				implementsTypes.add(qualifiedIdentifier());
 			}
 		}
-		return new JClassDeclaration(line, mods, name, superClass, implementsTypes, classBody());
+		int header = errors;
+		ArrayList<JMember> members = classBody();
+		return header > before ? null : new JClassDeclaration(line, mods, name, superClass, implementsTypes, members);
 	}
 
 
@@ -574,13 +937,18 @@ public class Parser {
      *                  [EXTENDS qualifiedIdentifier] 
      *                  interfaceBody
 	 * </pre>
+	 * 
+	 * @param mods the interface modifiers.
+	 * @return an AST for an interfaceDeclaration, or null if errors were found
+	 *         before its body (see recovered()).
 	 */
 
 	private JInterfaceDeclaration interfaceDeclaration(ArrayList<String> mods) {
-		int line = scanner.token().line();
+		int line = scanner.line();
+		int before = errors;
 		mustBe(INTERFACE);
 		mustBe(IDENTIFIER);
-		String name = scanner.previousToken().image();
+		String name = scanner.previousImage();
 		ArrayList<Type> extendsTypes = new ArrayList<Type>();
 		if (have(EXTENDS)) {
 			extendsTypes.add(qualifiedIdentifier());
@@ -588,7 +956,9 @@ public class Parser {
 			while (have(COMMA))
 				extendsTypes.add(qualifiedIdentifier());
 		}
-		return new JInterfaceDeclaration(line, mods, name, extendsTypes, interfaceBody());
+		int header = errors;
+		ArrayList<JMember> members = interfaceBody();
+		return header > before ? null : new JInterfaceDeclaration(line, mods, name, extendsTypes, members);
 	}
 
 	/**
@@ -604,15 +974,51 @@ public class Parser {
 	 */
 
 	private ArrayList<JMember> classBody() {
-		ArrayList<JMember> members = new ArrayList<JMember>();
 		mustBe(LCURLY);
+		ArrayList<JMember> members = classMembers();
+		mustBe(RCURLY);
+		return members;
+	}
+
+	/**
+	 * Parse the members in a class body.
+	 * 
+	 * <pre>
+	 *   classMembers ::= {modifiers classMemberDecl}
+	 * </pre>
+	 * 
+	 * @return list of members.
+	 */
+
+	private ArrayList<JMember> classMembers() {
+		ArrayList<JMember> members = new ArrayList<JMember>();
 		while (!see(RCURLY) && !see(EOF)) {
-			members.add(classMemberDecl(modifiers()));
+			JMember member = recoveredClassMember();
+			if (member != null) {
+				members.add(member);
+			}
 		}
-		mustBe(RCURLY);
 		return members;
 	}
 
+	/**
+	 * Parse a member in a class body, with its modifiers, and recover from any
+	 * error in it, so that the next one can be parsed.
+	 * 
+	 * @return an AST for the member, or null if it is left out for errors.
+	 */
+
+	JMember recoveredClassMember() {
+		DeclarationExtent declared = beginExtent();
+		int start = scanner.position();
+		JMember member = classMemberDecl(modifiers());
+		if (!isRecovered) {
+			recover(start, MEMBER_STARTERS);
+		}
+		endExtent(declared, (JAST) member);
+		return member;
+	}
+
 	/**
 	 * Parse an interface body.
 	 * 
@@ -626,15 +1032,51 @@ public class Parser {
 	 */
 
 	private ArrayList<JMember> interfaceBody() {
-		ArrayList<JMember> members = new ArrayList<JMember>();
 		mustBe(LCURLY);
+		ArrayList<JMember> members = interfaceMembers();
+		mustBe(RCURLY);
+		return members;
+	}
+
+	/**
+	 * Parse the members in an interface body.
+	 * 
+	 * <pre>
+	 *   interfaceMembers ::= {modifiers interfaceMemberDecl}
+	 * </pre>
+	 * 
+	 * @return list of members.
+	 */
+
+	private ArrayList<JMember> interfaceMembers() {
+		ArrayList<JMember> members = new ArrayList<JMember>();
 		while (!see(RCURLY) && !see(EOF)) {
-			members.add(interfaceMemberDecl(modifiers()));
+			JMember member = recoveredInterfaceMember();
+			if (member != null) {
+				members.add(member);
+			}
 		}
-		mustBe(RCURLY);
 		return members;
 	}
 
+	/**
+	 * Parse a member in an interface body, with its modifiers, and recover from any
+	 * error in it, so that the next one can be parsed.
+	 * 
+	 * @return an AST for the member, or null if it is left out for errors.
+	 */
+
+	JMember recoveredInterfaceMember() {
+		DeclarationExtent declared = beginExtent();
+		int start = scanner.position();
+		JMember member = interfaceMemberDecl(modifiers());
+		if (!isRecovered) {
+			recover(start, MEMBER_STARTERS);
+		}
+		endExtent(declared, (JAST) member);
+		return member;
+	}
+
 	/**
 	 * Parse a class member declaration.
 	 * 
@@ -649,22 +1091,27 @@ public class Parser {
 	 * </pre>
 	 * 
 	 * @param mods the class member modifiers.
-	 * @return an AST for a memberDecl.
+	 * @return an AST for a memberDecl, or null if it is left out for errors (see
+	 *         recovered()).
 	 */
 
 	private JMember classMemberDecl(ArrayList<String> mods) {
-		int line = scanner.token().line();
+		int line = scanner.line();
+		int before = errors;
+		int header;
 		JMember memberDecl = null;
 		if (see(LCURLY)) {
 			// A block
+			header = errors;
 			JBlock body = block();
 			memberDecl = new JInitializationBlockDeclaration(line, mods, body);
 		} else if (seeIdentLParen()) {
 			// A constructor
 			mustBe(IDENTIFIER);
-			String name = scanner.previousToken().image();
+			String name = scanner.previousImage();
 			ArrayList<JFormalParameter> params = formalParameters();
 			ArrayList<Type> throwTypes = throwTypes();
+			header = errors;
 			JBlock body = block();
 			memberDecl = new JConstructorDeclaration(line, mods, name, throwTypes, params, body);
 		} else {
@@ -673,9 +1120,10 @@ public class Parser {
 				// void method
 				type = Type.VOID;
 				mustBe(IDENTIFIER);
-				String name = scanner.previousToken().image();
+				String name = scanner.previousImage();
 				ArrayList<JFormalParameter> params = formalParameters();
 				ArrayList<Type> throwTypes = throwTypes();
+				header = errors;
 				JBlock body = have(SEMI) ? null : block();
 				memberDecl = new JMethodDeclaration(line, mods, name, type, throwTypes, params, body);
 			} else {
@@ -683,19 +1131,21 @@ public class Parser {
 				if (seeIdentLParen()) {
 					// Non void method
 					mustBe(IDENTIFIER);
-					String name = scanner.previousToken().image();
+					String name = scanner.previousImage();
 					ArrayList<JFormalParameter> params = formalParameters();
 					ArrayList<Type> throwTypes = throwTypes();
+					header = errors;
 					JBlock body = have(SEMI) ? null : block();
 					memberDecl = new JMethodDeclaration(line, mods, name, type, throwTypes, params, body);
 				} else {
 					// Field
 					memberDecl = new JFieldDeclaration(line, mods, variableDeclarators(type));
 					mustBe(SEMI);
+					header = errors;
 				}
 			}
 		}
-		return memberDecl;
+		return recovered(memberDecl, before, header);
 	}
 
 	/**
@@ -709,18 +1159,20 @@ public class Parser {
 	 * </pre>
 	 * 
 	 * @param mods the class member modifiers.
-	 * @return an AST for a memberDecl.
+	 * @return an AST for a memberDecl, or null if it is left out for errors (see
+	 *         recovered()).
 	 */
 
 	private JMember interfaceMemberDecl(ArrayList<String> mods) {
-		int line = scanner.token().line();
+		int line = scanner.line();
+		int before = errors;
 		JMember memberDecl = null;
 		Type type = null;
 		if (have(VOID)) {
 			// void method
 			type = Type.VOID;
 			mustBe(IDENTIFIER);
-			String name = scanner.previousToken().image();
+			String name = scanner.previousImage();
 			ArrayList<JFormalParameter> params = formalParameters();
 			ArrayList<Type> throwTypes = throwTypes();
 			mustBe(SEMI);
@@ -736,7 +1188,7 @@ public class Parser {
 			if (seeIdentLParen()) {
 				// Non void method
 				mustBe(IDENTIFIER);
-				String name = scanner.previousToken().image();
+				String name = scanner.previousImage();
 				ArrayList<JFormalParameter> params = formalParameters();
 				ArrayList<Type> throwTypes = throwTypes();
 				mustBe(SEMI);
@@ -762,7 +1214,7 @@ public class Parser {
 				mustBe(SEMI);
 			}
 		}
-		return memberDecl;
+		return recovered(memberDecl, before, errors);
 	}
 
 	/**
@@ -776,11 +1228,15 @@ public class Parser {
 	 */
 
 	private JBlock block() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		ArrayList<JStatement> statements = new ArrayList<JStatement>();
 		mustBe(LCURLY);
 		while (!see(RCURLY) && !see(EOF)) {
+			int start = scanner.position();
 			statements.add(blockStatement());
+			if (!isRecovered) {
+				recover(start, STATEMENT_STARTERS);
+			}
 		}
 		mustBe(RCURLY);
 		return new JBlock(line, statements);
@@ -823,7 +1279,7 @@ public class Parser {
 	 */
 
 	private JStatement statement() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		if (see(LCURLY)) {
 			return block();
 		} else if (have(IF)) {
@@ -950,10 +1406,10 @@ public class Parser {
 	 */
 
 	private JFormalParameter formalParameter() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		Type type = type();
 		mustBe(IDENTIFIER);
-		String name = scanner.previousToken().image();
+		String name = scanner.previousImage();
 		return new JFormalParameter(line, name, type);
 	}
 	
@@ -1007,7 +1463,7 @@ public class Parser {
 	 */
 
 	private JVariableDeclaration localVariableDeclarationStatement() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		ArrayList<String> mods = new ArrayList<String>();
 		ArrayList<JVariableDeclarator> vdecls = variableDeclarators(type());
 		mustBe(SEMI);
@@ -1047,9 +1503,9 @@ public class Parser {
 	 */
 
 	private JVariableDeclarator variableDeclarator(Type type) {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		mustBe(IDENTIFIER);
-		String name = scanner.previousToken().image();
+		String name = scanner.previousImage();
 		JExpression initial = have(ASSIGN) ? variableInitializer(type) : null;
 		return new JVariableDeclarator(line, name, type, initial);
 	}
@@ -1088,15 +1544,17 @@ public class Parser {
 	 */
 
 	private JArrayInitializer arrayInitializer(Type type) {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		ArrayList<JExpression> initials = new ArrayList<JExpression>();
 		mustBe(LCURLY);
 		if (have(RCURLY)) {
 			return new JArrayInitializer(line, type, initials);
 		}
-		initials.add(variableInitializer(type.componentType()));
+		// After a syntax error the type may be ANY, or not an array type
+		Type componentType = type instanceof ArrayTypeName ? type.componentType() : Type.ANY;
+		initials.add(variableInitializer(componentType));
 		while (have(COMMA)) {
-			initials.add(see(RCURLY) ? null : variableInitializer(type.componentType()));
+			initials.add(see(RCURLY) ? null : variableInitializer(componentType));
 		}
 		mustBe(RCURLY);
 		return new JArrayInitializer(line, type, initials);
@@ -1163,7 +1621,7 @@ public class Parser {
 		} else if (have(DOUBLE)) {
 			return Type.DOUBLE;
 		} else {
-			reportParserError("Type sought where %s found", scanner.token().image());
+			reportParserError("Type sought where %s found", scanner.image());
 			return Type.ANY;
 		}
 	}
@@ -1209,7 +1667,7 @@ public class Parser {
 	 */
 
 	private JStatement statementExpression() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		JExpression expr = expression();
 		if (expr instanceof JAssignment || expr instanceof JPreIncrementOp || expr instanceof JPostDecrementOp
 				|| expr instanceof JPreDecrementOp || expr instanceof JPostIncrementOp
@@ -1234,7 +1692,7 @@ public class Parser {
 	 */
 
 	private JExpression expression() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		JExpression lhs = assignmentExpression();
 
 		if (have(TERN)) {
@@ -1266,7 +1724,7 @@ public class Parser {
 	 */
 
 	private JExpression assignmentExpression() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		JExpression lhs = conditionalExpression();
 		if (have(ASSIGN)) {
 			return new JAssignOp(line, lhs, assignmentExpression());
@@ -1297,7 +1755,7 @@ public class Parser {
 	 */
 
 	private JExpression conditionalExpression() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		boolean more = true;
 		JExpression lhs = bitwiseExpressionFour();
 		while (more) {
@@ -1324,7 +1782,7 @@ public class Parser {
 	 */
 
 	private JExpression bitwiseExpressionFour() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		boolean more = true;
 		JExpression lhs = bitwiseExpressionThree();
 		while (more) {
@@ -1349,7 +1807,7 @@ public class Parser {
 	 */
 
 	private JExpression bitwiseExpressionThree() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		boolean more = true;
 		JExpression lhs = bitwiseExpressionTwo();
 		while (more) {
@@ -1374,7 +1832,7 @@ public class Parser {
 	 */
 
 	private JExpression bitwiseExpressionTwo() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		boolean more = true;
 		JExpression lhs = equalityExpression();
 		while (more) {
@@ -1399,7 +1857,7 @@ public class Parser {
 	 */
 
 	private JExpression equalityExpression() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		boolean more = true;
 		JExpression lhs = relationalExpression();
 		while (more) {
@@ -1425,7 +1883,7 @@ public class Parser {
 	 */
 
 	private JExpression relationalExpression() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		JExpression lhs = bitwiseExpressionOne();
 		if (have(GT)) {
 			return new JGreaterThanOp(line, lhs, bitwiseExpressionOne());
@@ -1450,7 +1908,7 @@ public class Parser {
 	 */
 
 	private JExpression bitwiseExpressionOne() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		boolean more = true;
 		JExpression lhs = additiveExpression();
 		while (more) {
@@ -1479,7 +1937,7 @@ public class Parser {
 	 */
 
 	private JExpression additiveExpression() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		boolean more = true;
 		JExpression lhs = multiplicativeExpression();
 		while (more) {
@@ -1506,7 +1964,7 @@ public class Parser {
 	 */
 
 	private JExpression multiplicativeExpression() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		boolean more = true;
 		JExpression lhs = unaryExpression();
 		while (more) {
@@ -1537,7 +1995,7 @@ public class Parser {
 	 */
 
 	private JExpression unaryExpression() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		if (have(INC)) {
 			return new JPreIncrementOp(line, unaryExpression());
 		} else if (have(DEC)) {
@@ -1567,7 +2025,7 @@ public class Parser {
 	 */
 
 	private JExpression simpleUnaryExpression() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		if (have(LNOT)) {
 			return new JLogicalNotOp(line, unaryExpression());
 		} else if (have(PLUS)) {
@@ -1597,7 +2055,7 @@ public class Parser {
 	 */
 
 	private JExpression postfixExpression() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		JExpression primaryExpr = primary();
 		while (see(DOT) || see(LBRACK)) {
 			primaryExpr = selector(primaryExpr);
@@ -1624,11 +2082,11 @@ public class Parser {
 	 */
 
 	private JExpression selector(JExpression target) {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		if (have(DOT)) {
 			// Target . selector
 			mustBe(IDENTIFIER);
-			String name = scanner.previousToken().image();
+			String name = scanner.previousImage();
 			if (see(LPAREN)) {
 				ArrayList<JExpression> args = arguments();
 				return new JMessageExpression(line, target, name, args);
@@ -1661,7 +2119,7 @@ public class Parser {
 	 */
 
 	private JExpression primary() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		if (see(LPAREN)) {
 			return parExpression();
 		} else if (have(THIS)) {
@@ -1675,7 +2133,7 @@ public class Parser {
 				return new JSuperConstruction(line, arguments());
 			} else {
 				mustBe(IDENTIFIER);
-				String name = scanner.previousToken().image();
+				String name = scanner.previousImage();
 				JExpression newTarget = new JSuper(line);
 				if (see(LPAREN)) {
 					return new JMessageExpression(line, newTarget, null, name, arguments());
@@ -1685,16 +2143,23 @@ public class Parser {
 			}
 		} else if (have(NEW)) {
 			return creator();
-		} else if (see(IDENTIFIER)) {
-			TypeName id = qualifiedIdentifier();
+		} else if (have(IDENTIFIER)) {
+			String name = scanner.previousImage();
+			if (!see(DOT)) {
+				// A simple name, for which no qualified name need be built
+				if (see(LPAREN)) {
+					return new JMessageExpression(line, null, null, name, arguments());
+				} else {
+					return new JVariable(line, name);
+				}
+			}
+			TypeName id = qualifiedIdentifier(line, name);
+			AmbiguousName ambiguousPart = ambiguousPart(id);
 			if (see(LPAREN)) {
-				return new JMessageExpression(line, null, ambiguousPart(id), id.simpleName(), arguments());
-			} else if (ambiguousPart(id) == null) {
-				// A simple name
-				return new JVariable(line, id.simpleName());
+				return new JMessageExpression(line, null, ambiguousPart, id.simpleName(), arguments());
 			} else {
 				// ambiguousPart.fieldName
-				return new JFieldSelection(line, ambiguousPart(id), null, id.simpleName());
+				return new JFieldSelection(line, ambiguousPart, null, id.simpleName());
 			}
 		} else {
 			return literal();
@@ -1717,7 +2182,7 @@ public class Parser {
 	 */
 
 	private JExpression creator() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		Type type = seeBasicType() ? basicType() : qualifiedIdentifier();
 		if (see(LPAREN)) {
 			ArrayList<JExpression> args = arguments();
@@ -1733,7 +2198,7 @@ public class Parser {
 			} else
 				return newArrayDeclarator(line, type);
 		} else {
-			reportParserError("( or [ sought where %s found", scanner.token().image());
+			reportParserError("( or [ sought where %s found", scanner.image());
 			return new JWildExpression(line);
 		}
 	}
@@ -1788,15 +2253,15 @@ public class Parser {
 	 */
 
 	private JExpression literal() {
-		int line = scanner.token().line();
+		int line = scanner.line();
 		if (have(DOUBLE_LITERAL)) {
-			return new JLiteralDouble(line, scanner.previousToken().image());
+			return new JLiteralDouble(line, scanner.previousImage());
 		} else if (have(INT_LITERAL)) {
-			return new JLiteralInt(line, scanner.previousToken().image());
+			return new JLiteralInt(line, scanner.previousImage());
 		} else if (have(CHAR_LITERAL)) {
-			return new JLiteralChar(line, scanner.previousToken().image());
+			return new JLiteralChar(line, scanner.previousImage());
 		} else if (have(STRING_LITERAL)) {
-			return new JLiteralString(line, scanner.previousToken().image());
+			return new JLiteralString(line, scanner.previousImage());
 		} else if (have(TRUE)) {
 			return new JLiteralTrue(line);
 		} else if (have(FALSE)) {
@@ -1804,7 +2269,7 @@ public class Parser {
 		} else if (have(NULL)) {
 			return new JLiteralNull(line);
 		} else {
-			reportParserError("Literal sought where %s found", scanner.token().image());
+			reportParserError("Literal sought where %s found", scanner.image());
 			return new JWildExpression(line);
 		}
 	}
@@ -1814,11 +2279,11 @@ public class Parser {
 	// private void trace( String message )
 	// {
 	// System.err.println( "["
-	// + scanner.token().line()
+	// + scanner.line()
 	// + ": "
 	// + message
 	// + ", looking at a: "
 	// + scanner.token().tokenRep()
-	// + " = " + scanner.token().image() + "]" );
+	// + " = " + scanner.image() + "]" );
 	// }
 }
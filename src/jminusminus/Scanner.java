@@ -2,11 +2,15 @@
 
 package jminusminus;
 
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.LineNumberReader;
-import java.util.Hashtable;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import static jminusminus.TokenKind.*;
 
 /**
@@ -22,9 +26,6 @@ class Scanner {
 	/** End of file character. */
 	public final static char EOFCH = CharReader.EOFCH;
 
-	/** Keywords in j--. */
-	private Hashtable<String, TokenKind> reserved;
-
 	/** Source characters. */
 	private CharReader input;
 
@@ -40,6 +41,30 @@ class Scanner {
 	/** Line number of current token. */
 	private int line;
 
+	/** Offset in the source of ch. */
+	private int offset;
+
+	/** Kind of the current token. */
+	private TokenKind kind;
+
+	/** Offset in the source of the current token. */
+	private int start;
+
+	/** Length in the source of the current token. */
+	private int length;
+
+	/** Symbol of the image of the current token, or -1 if it has none. */
+	private int symbol;
+
+	/** Images of the identifiers and literals scanned. */
+	private NameTable names;
+
+	/** Characters of the image of the token being scanned. */
+	private char[] text;
+
+	/** Number of characters in text. */
+	private int textLength;
+
 	/**
 	 * Construct a Scanner object.
 	 * 
@@ -48,63 +73,66 @@ class Scanner {
 	 */
 
 	public Scanner(String fileName) throws FileNotFoundException {
-		this.input = new CharReader(fileName);
-		this.fileName = fileName;
-		isInError = false;
+		this(new CharReader(fileName));
+	}
+
+	/**
+	 * Construct a Scanner object for source that is read from the specified
+	 * reader rather than from a file.
+	 * 
+	 * @param fileName the name by which the source is known in diagnostics.
+	 * @param source   reader for the source.
+	 */
+
+	public Scanner(String fileName, Reader source) {
+		this(new CharReader(fileName, source));
+	}
+
+	/**
+	 * Construct a Scanner object for source that is read from the specified
+	 * reader, and that is a part of a larger source starting at the specified
+	 * offset and line; the offsets and lines of the tokens are then those in the
+	 * larger source.
+	 * 
+	 * @param fileName the name by which the source is known in diagnostics.
+	 * @param source   reader for the source.
+	 * @param offset   offset of the source in the larger source.
+	 * @param line     line at which the source starts in the larger source.
+	 */
 
-		// Keywords in j--
-		reserved = new Hashtable<String, TokenKind>();
-		reserved.put(ABSTRACT.image(), ABSTRACT);
-		reserved.put(BOOLEAN.image(), BOOLEAN);
-		reserved.put(BREAK.image(), BREAK);
-		reserved.put(BYTE.image(), BYTE);
-		reserved.put(CASE.image(), CASE);
-		reserved.put(CATCH.image(), CATCH);
-		reserved.put(CHAR.image(), CHAR);
-		reserved.put(CLASS.image(), CLASS);
-		reserved.put(CONST.image(), CONST);
-		reserved.put(CONTINUE.image(), CONTINUE);
-		reserved.put(DEFAULT.image(), DEFAULT);
-		reserved.put(DO.image(), DO);
-		reserved.put(DOUBLE.image(), DOUBLE);
-		reserved.put(ELSE.image(), ELSE);
-		reserved.put(EXTENDS.image(), EXTENDS);
-		reserved.put(FINAL.image(), FINAL);
-		reserved.put(FINALLY.image(), FINALLY);
-		reserved.put(FLOAT.image(), FLOAT);
-		reserved.put(FOR.image(), FOR);
-		reserved.put(GOTO.image(), GOTO);
-		reserved.put(FALSE.image(), FALSE);
-		reserved.put(IF.image(), IF);
-		reserved.put(IMPLEMENTS.image(), IMPLEMENTS);
-		reserved.put(IMPORT.image(), IMPORT);
-		reserved.put(INSTANCEOF.image(), INSTANCEOF);
-		reserved.put(INT.image(), INT);
-		reserved.put(INTERFACE.image(), INTERFACE);
-		reserved.put(LONG.image(), LONG);
-		reserved.put(NATIVE.image(), NATIVE);
-		reserved.put(NEW.image(), NEW);
-		reserved.put(NULL.image(), NULL);
-		reserved.put(PACKAGE.image(), PACKAGE);
-		reserved.put(PRIVATE.image(), PRIVATE);
-		reserved.put(PROTECTED.image(), PROTECTED);
-		reserved.put(PUBLIC.image(), PUBLIC);
-		reserved.put(RETURN.image(), RETURN);
-		reserved.put(SHORT.image(), SHORT);
-		reserved.put(STATIC.image(), STATIC);
-		reserved.put(STRICTFP.image(), STRICTFP);
-		reserved.put(SUPER.image(), SUPER);
-		reserved.put(SWITCH.image(), SWITCH);
-		reserved.put(SYNCRONIZED.image(), SYNCRONIZED);
-		reserved.put(THIS.image(), THIS);
-		reserved.put(THROW.image(), THROW);
-		reserved.put(THROWS.image(), THROWS);
-		reserved.put(TRANSIENT.image(), TRANSIENT);
-		reserved.put(TRY.image(), TRY);
-		reserved.put(TRUE.image(), TRUE);
-		reserved.put(VOID.image(), VOID);
-		reserved.put(VOLATILE.image(), VOLATILE);
-		reserved.put(WHILE.image(), WHILE);
+	public Scanner(String fileName, Reader source, int offset, int line) {
+		this(new CharReader(fileName, source, offset, line));
+	}
+
+	/**
+	 * Construct a Scanner object for a part of a source that has already been
+	 * read, from the specified start offset up to the specified end offset; the
+	 * offsets and lines of the tokens are those in the whole source.
+	 * 
+	 * @param fileName the name by which the source is known in diagnostics.
+	 * @param source   the source, which is shared and must not be changed.
+	 * @param start    offset of the start of the part.
+	 * @param end      offset of the end of the part.
+	 * @param line     line at which the part starts.
+	 */
+
+	public Scanner(String fileName, char[] source, int start, int end, int line) {
+		this(new CharReader(fileName, source, start, end, line));
+	}
+
+	/**
+	 * Construct a Scanner object that reads the source from the specified
+	 * CharReader.
+	 * 
+	 * @param input the source.
+	 */
+
+	private Scanner(CharReader input) {
+		this.input = input;
+		this.fileName = input.fileName();
+		isInError = false;
+		names = new NameTable();
+		text = new char[256];
 
 		// Prime the pump.
 		nextCh();
@@ -117,13 +145,27 @@ class Scanner {
 	 */
 
 	public TokenInfo getNextToken() {
-		StringBuffer buffer;
+		scan();
+		return new TokenInfo(kind, image(), line);
+	}
+
+	/**
+	 * Scan the next token from input, without allocating a TokenInfo for it. Its
+	 * kind, image, line, offset and length are then available through kind(),
+	 * symbol(), image(), line(), offset() and length(), until the next token is
+	 * scanned.
+	 * 
+	 * @return the kind of the next scanned token.
+	 */
+
+	public TokenKind scan() {
 		boolean moreWhiteSpace = true;
 		while (moreWhiteSpace) {
 			while (isWhitespace(ch)) {
 				nextCh();
 			}
 			if (ch == '/') {
+				start = offset;
 				nextCh();
 				if (ch == '/') {
 					// CharReader maps all new lines to '\n'
@@ -150,96 +192,97 @@ class Scanner {
 					}
 				} else if (ch == '=') {
 					nextCh();
-					return new TokenInfo(DIV_ASSIGN, line);
+					return token(DIV_ASSIGN);
 				} else {
-					return new TokenInfo(DIV, line);
+					return token(DIV);
 				}
 			} else {
 				moreWhiteSpace = false;
 			}
 		}
 		line = input.line();
+		start = offset;
 		switch (ch) {
 		case '(':
 			nextCh();
-			return new TokenInfo(LPAREN, line);
+			return token(LPAREN);
 		case ')':
 			nextCh();
-			return new TokenInfo(RPAREN, line);
+			return token(RPAREN);
 		case '{':
 			nextCh();
-			return new TokenInfo(LCURLY, line);
+			return token(LCURLY);
 		case '}':
 			nextCh();
-			return new TokenInfo(RCURLY, line);
+			return token(RCURLY);
 		case '[':
 			nextCh();
-			return new TokenInfo(LBRACK, line);
+			return token(LBRACK);
 		case ']':
 			nextCh();
-			return new TokenInfo(RBRACK, line);
+			return token(RBRACK);
 		case ';':
 			nextCh();
-			return new TokenInfo(SEMI, line);
+			return token(SEMI);
 		case ',':
 			nextCh();
-			return new TokenInfo(COMMA, line);
+			return token(COMMA);
 		case '=':
 			nextCh();
 			if (ch == '=') {
 				nextCh();
-				return new TokenInfo(EQUAL, line);
+				return token(EQUAL);
 			} else {
-				return new TokenInfo(ASSIGN, line);
+				return token(ASSIGN);
 			}
 		case '!':
 			nextCh();
 			if (ch == '=') {
 				nextCh();
-				return new TokenInfo(LNOT_EQUAL, line);
+				return token(LNOT_EQUAL);
 			} else {
-				return new TokenInfo(LNOT, line);
+				return token(LNOT);
 			}
 		case '*':
 			nextCh();
 			if (ch == '=') {
 				nextCh();
-				return new TokenInfo(STAR_ASSIGN, line);
+				return token(STAR_ASSIGN);
 			} else {
-				return new TokenInfo(STAR, line);
+				return token(STAR);
 			}
 		case '+':
 			nextCh();
 			if (ch == '=') {
 				nextCh();
-				return new TokenInfo(PLUS_ASSIGN, line);
+				return token(PLUS_ASSIGN);
 			} else if (ch == '+') {
 				nextCh();
-				return new TokenInfo(INC, line);
+				return token(INC);
 			} else {
-				return new TokenInfo(PLUS, line);
+				return token(PLUS);
 			}
 		case '-':
 			nextCh();
 			if (ch == '-') {
 				nextCh();
-				return new TokenInfo(DEC, line);
+				return token(DEC);
 			} else if (ch == '=') {
 				nextCh();
-				return new TokenInfo(MINUS_ASSIGN, line);
+				return token(MINUS_ASSIGN);
 			} else {
-				return new TokenInfo(MINUS, line);
+				return token(MINUS);
 			}
 		case '&':
 			nextCh();
 			if (ch == '&') {
 				nextCh();
-				return new TokenInfo(LAND, line);
+				return token(LAND);
 			} else if (ch == '&') {
 				nextCh();
-				return new TokenInfo(AND_ASSIGN, line);
+				return token(AND_ASSIGN);
 			} else {
-				return new TokenInfo(AND, line);
+				return token(AND);
 			}
 		case '>':
 			nextCh();
@@ -249,102 +292,102 @@ class Scanner {
 					nextCh();
 					if (ch == '=') {
 						nextCh();
-						return new TokenInfo(LRSHIFT_ASSIGN, line);
+						return token(LRSHIFT_ASSIGN);
 					} else {
-						return new TokenInfo(LRSHIFT, line);
+						return token(LRSHIFT);
 					}
 				} else if (ch == '=') {
 					nextCh();
-					return new TokenInfo(RSHIFT_ASSIGN, line);
+					return token(RSHIFT_ASSIGN);
 				} else {
-					return new TokenInfo(RSHIFT, line);
+					return token(RSHIFT);
 				}
 			} else if (ch == '=') {
 				nextCh();
-				return new TokenInfo(GE, line);
+				return token(GE);
 			} else {
-				return new TokenInfo(GT, line);
+				return token(GT);
 			}
 		case '<':
 			nextCh();
 			if (ch == '=') {
 				nextCh();
-				return new TokenInfo(LE, line);
+				return token(LE);
 			} else if (ch == '<') {
 				nextCh();
 				if (ch == '=') {
 					nextCh();
-					return new TokenInfo(LSHIFT_ASSIGN, line);
+					return token(LSHIFT_ASSIGN);
 				} else {
-					return new TokenInfo(LSHIFT, line);
+					return token(LSHIFT);
 				}
 			} else {
-				return new TokenInfo(LT, line);
+				return token(LT);
 			}
 		case '%':
 			nextCh();
 			if (ch == '=') {
 				nextCh();
-				return new TokenInfo(REM_ASSIGN, line);
+				return token(REM_ASSIGN);
 			} else {
-				return new TokenInfo(REM, line);
+				return token(REM);
 			}
 		case '^':
 			nextCh();
 			if (ch == '=') {
 				nextCh();
-				return new TokenInfo(XOR_ASSIGN, line);
+				return token(XOR_ASSIGN);
 			} else {
-				return new TokenInfo(XOR, line);
+				return token(XOR);
 			}
 		case '|':
 			nextCh();
 			if (ch == '=') {
 				nextCh();
-				return new TokenInfo(OR_ASSIGN, line);
+				return token(OR_ASSIGN);
 			} else if (ch == '|') {
 				nextCh();
-				return new TokenInfo(LOR, line);
+				return token(LOR);
 			} else {
-				return new TokenInfo(OR, line);
+				return token(OR);
 			}
 		case '~':
 			nextCh();
-			return new TokenInfo(NOT, line);
+			return token(NOT);
 		case '\'':
-			buffer = new StringBuffer();
-			buffer.append('\'');
+			textLength = 0;
+			append('\'');
 			nextCh();
 			if (ch == '\\') {
 				nextCh();
-				buffer.append(escape());
+				append(escape());
 			} else {
-				buffer.append(ch);
+				append(ch);
 				nextCh();
 			}
 			if (ch == '\'') {
-				buffer.append('\'');
+				append('\'');
 				nextCh();
-				return new TokenInfo(CHAR_LITERAL, buffer.toString(), line);
+				return token(CHAR_LITERAL, intern());
 			} else {
 				// Expected a ' ; report error and try to
 				// recover.
 				reportScannerError(ch + " found by scanner where closing ' was expected.");
-				while (ch != '\'' && ch != ';' && ch != '\n') {
+				while (ch != '\'' && ch != ';' && ch != '\n' && ch != EOFCH) {
 					nextCh();
 				}
-				return new TokenInfo(CHAR_LITERAL, buffer.toString(), line);
+				return token(CHAR_LITERAL, intern());
 			}
 		case '"':
-			buffer = new StringBuffer();
-			buffer.append("\"");
+			textLength = 0;
+			append("\"");
 			nextCh();
 			while (ch != '"' && ch != '\n' && ch != EOFCH) {
 				if (ch == '\\') {
 					nextCh();
-					buffer.append(escape());
+					append(escape());
 				} else {
-					buffer.append(ch);
+					append(ch);
 					nextCh();
 				}
 			}
@@ -355,36 +398,38 @@ class Scanner {
 			} else {
 				// Scan the closing "
 				nextCh();
-				buffer.append("\"");
+				append("\"");
 			}
-			return new TokenInfo(STRING_LITERAL, buffer.toString(), line);
+			return token(STRING_LITERAL, intern());
 		case '.':
 			nextCh();
-			return new TokenInfo(DOT, line);
+			return token(DOT);
 		case ':':
 			nextCh();
-			return new TokenInfo(COLON, line);
+			return token(COLON);
 		case '?':
 			nextCh();
-			return new TokenInfo(TERN, line);
+			return token(TERN);
 		case EOFCH:
-			return new TokenInfo(EOF, line);
+			return token(EOF);
 		case '0':
+			textLength = 0;
+			append('0');
 			nextCh();
 			if (ch == '.') {
+				append('.');
 				nextCh();
-				buffer = new StringBuffer("0.");
 				while (isDigit(ch)) {
-					buffer.append(ch);
+					append(ch);
 					nextCh();
 				}
 				
 				if (ch == 'e' || ch == 'E') {
-					buffer.append('e');
+					append('e');
 					nextCh();
 					
 					if (ch == '-' || ch == '+') {
-						buffer.append(ch);
+						append(ch);
 						nextCh();
 					}
 					
@@ -393,7 +438,7 @@ class Scanner {
 					}
 					
 					while (isDigit(ch)) {
-						buffer.append(ch);
+						append(ch);
 						nextCh();
 					}
 				} 
@@ -402,14 +447,14 @@ class Scanner {
 					// Skip
 					nextCh();
 				}
-				return new TokenInfo(DOUBLE_LITERAL, buffer.toString(), line);				
+				return token(DOUBLE_LITERAL, intern());				
 			} else {
 				if (ch == 'd'|| ch == 'D') {
 					// Skip
 					nextCh();
-					return new TokenInfo(DOUBLE_LITERAL, "0", line);	
+					return token(DOUBLE_LITERAL, intern());
 				}
-				return new TokenInfo(INT_LITERAL, "0", line);
+				return token(INT_LITERAL, intern());
 			}
 		case '1':
 		case '2':
@@ -420,9 +465,9 @@ class Scanner {
 		case '7':
 		case '8':
 		case '9':
-			buffer = new StringBuffer();
+			textLength = 0;
 			while (isDigit(ch)) {
-				buffer.append(ch);
+				append(ch);
 				nextCh();
 			}
 
@@ -431,10 +476,10 @@ class Scanner {
 			if (ch == '.') {
 				kind = DOUBLE_LITERAL;
 				
-				buffer.append(ch);
+				append(ch);
 				nextCh();
 				while (isDigit(ch)) {
-					buffer.append(ch);
+					append(ch);
 					nextCh();
 				}
 			} else {
@@ -450,11 +495,11 @@ class Scanner {
 				// Override
 				kind = DOUBLE_LITERAL;
 				
-				buffer.append('e');
+				append('e');
 				nextCh();
 				
 				if (ch == '-' || ch == '+') {
-					buffer.append(ch);
+					append(ch);
 					nextCh();
 				}
 				
@@ -463,7 +508,7 @@ class Scanner {
 				}
 				
 				while (isDigit(ch)) {
-					buffer.append(ch);
+					append(ch);
 					nextCh();
 				}
 			}
@@ -475,25 +520,25 @@ class Scanner {
 				nextCh();
 			}
 			
-			return new TokenInfo(kind, buffer.toString(), line);
+			return token(kind, intern());
 			
 		default:
 			if (isIdentifierStart(ch)) {
-				buffer = new StringBuffer();
+				textLength = 0;
 				while (isIdentifierPart(ch)) {
-					buffer.append(ch);
+					append(ch);
 					nextCh();
 				}
-				String identifier = buffer.toString();
-				if (reserved.containsKey(identifier)) {
-					return new TokenInfo(reserved.get(identifier), line);
+				TokenKind reserved = Keywords.lookup(text, textLength);
+				if (reserved != null) {
+					return token(reserved);
 				} else {
-					return new TokenInfo(IDENTIFIER, identifier, line);
+					return token(IDENTIFIER, intern());
 				}
 			} else {
 				reportScannerError("Unidentified input token: '%c'", ch);
 				nextCh();
-				return getNextToken();
+				return scan();
 			}
 		}
 	}
@@ -537,12 +582,79 @@ class Scanner {
 		}
 	}
 
+	/**
+	 * Return the specified kind, as that of the current token, which has no image
+	 * of its own.
+	 * 
+	 * @param kind kind of the token.
+	 * @return the kind.
+	 */
+
+	private TokenKind token(TokenKind kind) {
+		return token(kind, -1);
+	}
+
+	/**
+	 * Return the specified kind, as that of the current token, whose image has
+	 * the specified symbol.
+	 * 
+	 * @param kind   kind of the token.
+	 * @param symbol symbol of its image, or -1.
+	 * @return the kind.
+	 */
+
+	private TokenKind token(TokenKind kind, int symbol) {
+		this.kind = kind;
+		this.symbol = symbol;
+		length = offset - start;
+		return kind;
+	}
+
+	/**
+	 * Append the specified character to the image being scanned.
+	 * 
+	 * @param c the character.
+	 */
+
+	private void append(char c) {
+		if (textLength == text.length) {
+			char[] grown = new char[2 * textLength];
+			System.arraycopy(text, 0, grown, 0, textLength);
+			text = grown;
+		}
+		text[textLength++] = c;
+	}
+
+	/**
+	 * Append the specified characters to the image being scanned.
+	 * 
+	 * @param s the characters.
+	 */
+
+	private void append(String s) {
+		for (int i = 0; i < s.length(); i++) {
+			append(s.charAt(i));
+		}
+	}
+
+	/**
+	 * Return the symbol of the image scanned, entering it in the name table if it
+	 * is new.
+	 * 
+	 * @return the symbol.
+	 */
+
+	private int intern() {
+		return names.intern(text, 0, textLength);
+	}
+
 	/**
 	 * Advance ch to the next character from input, and update the line number.
 	 */
 
 	private void nextCh() {
 		line = input.line();
+		offset = input.position();
 		try {
 			ch = input.nextChar();
 		} catch (Exception e) {
@@ -561,9 +673,8 @@ class Scanner {
 
 	private void reportScannerError(String message, Object... args) {
 		isInError = true;
-		System.err.printf("%s:%d: ", fileName, line);
-		System.err.printf(message, args);
-		System.err.println();
+		CompilationSession.current().report(new Diagnostic(Diagnostic.Kind.LEXICAL, fileName, line,
+				String.format(message, args)));
 	}
 
 	/**
@@ -619,6 +730,93 @@ class Scanner {
 		return (isIdentifierStart(c) || isDigit(c));
 	}
 
+	/**
+	 * Return the kind of the current token.
+	 * 
+	 * @return the kind.
+	 */
+
+	public TokenKind kind() {
+		return kind;
+	}
+
+	/**
+	 * Return the symbol of the image of the current token, in the name table of
+	 * this scanner.
+	 * 
+	 * @return the symbol, or -1 if the token has no image of its own.
+	 */
+
+	public int symbol() {
+		return symbol;
+	}
+
+	/**
+	 * Return the image of the current token.
+	 * 
+	 * @return the image.
+	 */
+
+	public String image() {
+		return symbol == -1 ? kind.toString() : names.name(symbol);
+	}
+
+	/**
+	 * Return the line of the current token.
+	 * 
+	 * @return the line.
+	 */
+
+	public int line() {
+		return line;
+	}
+
+	/**
+	 * Return the offset in the source of the current token.
+	 * 
+	 * @return the offset.
+	 */
+
+	public int offset() {
+		return start;
+	}
+
+	/**
+	 * Return the length in the source of the current token.
+	 * 
+	 * @return the length.
+	 */
+
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Return the table holding the images of the identifiers and literals
+	 * scanned.
+	 * 
+	 * @return the name table.
+	 */
+
+	public NameTable names() {
+		return names;
+	}
+
+	/**
+	 * Return the whole source being scanned, which must not be changed.
+	 * 
+	 * @return the source characters.
+	 */
+
+	public char[] source() {
+		try {
+			return input.source();
+		} catch (IOException e) {
+			reportScannerError("Unable to read characters from input");
+			return new char[0];
+		}
+	}
+
 	/**
 	 * Has an error occurred up to now in lexical analysis?
 	 * 
@@ -643,8 +841,12 @@ class Scanner {
 
 /**
  * A buffered character reader. Abstracts out differences between platforms,
- * mapping all new lines to '\n'. Also, keeps track of line numbers where the
- * first line is numbered 1.
+ * mapping all new lines ("\r\n", "\r" and "\n") to '\n'. Also, keeps track of
+ * line numbers where the first line is numbered 1.
+ *
+ * The whole input is read and decoded in bulk, into a character array, the
+ * first time a character is asked for; characters are then scanned from the
+ * array, and the line number is advanced as each new line is scanned.
  */
 
 class CharReader {
@@ -652,8 +854,32 @@ class CharReader {
 	/** A representation of the end of file as a character. */
 	public final static char EOFCH = (char) -1;
 
-	/** The underlying reader records line numbers. */
-	private LineNumberReader lineNumberReader;
+	/** Size of the blocks in which a reader is read. */
+	private final static int BLOCK_SIZE = 8192;
+
+	/** The input file, if the input is read from a file; otherwise null. */
+	private FileInputStream file;
+
+	/** The input reader, if the input is not read from a file; otherwise null. */
+	private Reader reader;
+
+	/** The input characters; null until they are read. */
+	private char[] buffer;
+
+	/** Number of input characters in buffer. */
+	private int length;
+
+	/** Index in buffer of the next character to scan. */
+	private int position;
+
+	/** Offset of the input in a larger source of which it is a part; else 0. */
+	private int origin;
+
+	/** Number of new lines scanned so far. */
+	private int newLines;
+
+	/** Whether the end of the input has been scanned. */
+	private boolean atEnd;
 
 	/** Name of the file that is being read. */
 	private String fileName;
@@ -666,8 +892,58 @@ class CharReader {
 	 */
 
 	public CharReader(String fileName) throws FileNotFoundException {
-		lineNumberReader = new LineNumberReader(new FileReader(fileName));
+		file = new FileInputStream(CompilationSession.current().file(fileName));
+		this.fileName = fileName;
+	}
+
+	/**
+	 * Construct a CharReader from a reader.
+	 * 
+	 * @param fileName the name by which the input is known.
+	 * @param reader   the input.
+	 */
+
+	public CharReader(String fileName, Reader reader) {
+		this.reader = reader;
+		this.fileName = fileName;
+	}
+
+	/**
+	 * Construct a CharReader from a reader whose input is a part of a larger
+	 * source, starting at the specified offset and line in it. Positions and line
+	 * numbers are then those in the larger source.
+	 * 
+	 * @param fileName the name by which the input is known.
+	 * @param reader   the input.
+	 * @param offset   offset of the input in the larger source.
+	 * @param line     line at which the input starts in the larger source.
+	 */
+
+	public CharReader(String fileName, Reader reader, int offset, int line) {
+		this(fileName, reader);
+		origin = offset;
+		newLines = line - 1;
+	}
+
+	/**
+	 * Construct a CharReader over a part of a source that has already been read,
+	 * from the specified start offset up to the specified end offset, the start
+	 * being on the specified line. The source is shared, not copied, and must not
+	 * be changed; positions and line numbers are those in the whole source.
+	 * 
+	 * @param fileName the name by which the source is known.
+	 * @param source   the source.
+	 * @param start    offset of the first character of the part.
+	 * @param end      offset just past the last character of the part.
+	 * @param line     line of the first character of the part.
+	 */
+
+	public CharReader(String fileName, char[] source, int start, int end, int line) {
 		this.fileName = fileName;
+		buffer = source;
+		position = start;
+		length = end;
+		newLines = line - 1;
 	}
 
 	/**
@@ -678,7 +954,40 @@ class CharReader {
 	 */
 
 	public char nextChar() throws IOException {
-		return (char) lineNumberReader.read();
+		if (buffer == null) {
+			read();
+		}
+		if (position == length) {
+			if (!atEnd) {
+				// Like a LineNumberReader, count an unterminated last line
+				atEnd = true;
+				if (length > 0 && buffer[length - 1] != '\n' && buffer[length - 1] != '\r') {
+					newLines++;
+				}
+			}
+			return EOFCH;
+		}
+		char c = buffer[position++];
+		if (c == '\n') {
+			newLines++;
+		} else if (c == '\r') {
+			if (position < length && buffer[position] == '\n') {
+				position++;
+			}
+			newLines++;
+			c = '\n';
+		}
+		return c;
+	}
+
+	/**
+	 * The offset in the input of the next character to scan.
+	 * 
+	 * @return the offset.
+	 */
+
+	public int position() {
+		return origin + position;
 	}
 
 	/**
@@ -688,8 +997,7 @@ class CharReader {
 	 */
 
 	public int line() {
-		// LineNumberReader counts lines from 0.
-		return lineNumberReader.getLineNumber() + 1;
+		return newLines + 1;
 	}
 
 	/**
@@ -702,6 +1010,26 @@ class CharReader {
 		return fileName;
 	}
 
+	/**
+	 * Return the whole input, reading it if that has not been done yet. The
+	 * returned array must not be changed.
+	 * 
+	 * @return the input characters.
+	 * @exception IOException if an I/O error occurs.
+	 */
+
+	public char[] source() throws IOException {
+		if (buffer == null) {
+			read();
+		}
+		if (buffer.length != length) {
+			char[] trimmed = new char[length];
+			System.arraycopy(buffer, 0, trimmed, 0, length);
+			buffer = trimmed;
+		}
+		return buffer;
+	}
+
 	/**
 	 * Close the file.
 	 * 
@@ -709,7 +1037,176 @@ class CharReader {
 	 */
 
 	public void close() throws IOException {
-		lineNumberReader.close();
+		if (file != null) {
+			file.close();
+		}
+		if (reader != null) {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Read the whole input into buffer, and close it. A file is read with a
+	 * single bulk read and decoded, in one pass, with the platform's default
+	 * charset; a reader is read in blocks.
+	 * 
+	 * @exception IOException if an I/O error occurs.
+	 */
+
+	private void read() throws IOException {
+		buffer = new char[0];
+		try {
+			if (file != null) {
+				FileChannel channel = file.getChannel();
+				ByteBuffer bytes = ByteBuffer.allocate((int) channel.size());
+				while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+				}
+				bytes.flip();
+				CharBuffer chars = Charset.defaultCharset().decode(bytes);
+				buffer = new char[chars.remaining()];
+				chars.get(buffer);
+				length = buffer.length;
+			} else {
+				char[] chars = new char[BLOCK_SIZE];
+				int n;
+				while ((n = reader.read(chars, length, chars.length - length)) != -1) {
+					length += n;
+					if (length == chars.length) {
+						char[] grown = new char[chars.length * 2];
+						System.arraycopy(chars, 0, grown, 0, length);
+						chars = grown;
+					}
+				}
+				buffer = chars;
+			}
+		} finally {
+			close();
+		}
+	}
+
+}
+
+/**
+ * The keywords of j--, recognized straight from the characters of a candidate
+ * identifier. The keywords are the token kinds in TokenKind whose images are
+ * words, so a keyword added there is recognized here too.
+ *
+ * The keywords are placed in a table by a perfect hash function, that is one
+ * under which no two keywords collide; the function is found when the class is
+ * loaded, by trying seeds until one works. So a lookup hashes the characters,
+ * and compares them with the one keyword in their slot of the table, if any.
+ * The table is never changed after it is built, so lookups need no locking.
+ */
+
+class Keywords {
+
+	/** Keywords by hash; null where there is none. */
+	private static final TokenKind[] table;
+
+	/** Images of the keywords in table, as character arrays. */
+	private static final char[][] images;
+
+	/** Seed of the hash function. */
+	private static final int seed;
+
+	/** Number of bits in an index of table. */
+	private static final int bits;
+
+	static {
+		ArrayList<TokenKind> keywords = new ArrayList<TokenKind>();
+		for (TokenKind kind : TokenKind.values()) {
+			char first = kind.image().charAt(0);
+			if (first >= 'a' && first <= 'z') {
+				keywords.add(kind);
+			}
+		}
+
+		// Try seeds until one places the keywords without collisions, in a
+		// table with at least four slots per keyword so that one is soon found
+		int b = 1;
+		while ((1 << b) < 4 * keywords.size()) {
+			b++;
+		}
+		int s = 0;
+		TokenKind[] t = place(keywords, s, b);
+		while (t == null) {
+			t = place(keywords, ++s, b);
+		}
+		table = t;
+		seed = s;
+		bits = b;
+		images = new char[table.length][];
+		for (int i = 0; i < table.length; i++) {
+			if (table[i] != null) {
+				images[i] = table[i].image().toCharArray();
+			}
+		}
+	}
+
+	/**
+	 * Return the keyword formed by the first length characters of the specified
+	 * array.
+	 * 
+	 * @param chars  the characters.
+	 * @param length number of characters.
+	 * @return the keyword, or null if they do not form one.
+	 */
+
+	public static TokenKind lookup(char[] chars, int length) {
+		int i = hash(chars, length, seed, bits);
+		char[] image = images[i];
+		if (image == null || image.length != length) {
+			return null;
+		}
+		for (int j = 0; j < length; j++) {
+			if (image[j] != chars[j]) {
+				return null;
+			}
+		}
+		return table[i];
+	}
+
+	/**
+	 * Return a table of the specified keywords placed by the hash function with
+	 * the specified seed and number of bits, or null if two of them collide.
+	 * 
+	 * @param keywords the keywords.
+	 * @param seed     seed of the hash function.
+	 * @param bits     number of bits in an index of the table.
+	 * @return the table, or null.
+	 */
+
+	private static TokenKind[] place(ArrayList<TokenKind> keywords, int seed, int bits) {
+		TokenKind[] table = new TokenKind[1 << bits];
+		for (TokenKind keyword : keywords) {
+			char[] image = keyword.image().toCharArray();
+			int i = hash(image, image.length, seed, bits);
+			if (table[i] != null) {
+				return null;
+			}
+			table[i] = keyword;
+		}
+		return table;
+	}
+
+	/**
+	 * Return the hash of the first length characters of the specified array: an
+	 * index, with the specified number of bits, into the table.
+	 * 
+	 * @param chars  the characters.
+	 * @param length number of characters.
+	 * @param seed   seed of the hash function.
+	 * @param bits   number of bits in the hash.
+	 * @return the hash.
+	 */
+
+	private static int hash(char[] chars, int length, int seed, int bits) {
+		int h = seed;
+		for (int i = 0; i < length; i++) {
+			h = 31 * h + chars[i];
+		}
+		// Fibonacci hashing, which takes the top bits of the product
+		return (h * 0x9E3779B9) >>> (32 - bits);
 	}
 
 }
@@ -0,0 +1,272 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Stack;
+
+/**
+ * Statistics gathered while compiling a source file, when asked for with
+ * -Xstats: the wall time, CPU time and bytes allocated by each phase of the
+ * compiler, and counts of the things (tokens, AST nodes, etc.) it handled.
+ *
+ * Phases may be nested (class files are written during code generation, for
+ * example), and the measurements for a phase exclude those of the phases
+ * nested in it. A phase entered several times (once per method, say)
+ * accumulates its measurements.
+ * CPU time and allocation are measured for the compiling thread, and are
+ * reported as -1 if the JVM does not support measuring them.
+ */
+
+class Statistics {
+
+    /** For measuring CPU time and allocation of the current thread. */
+    private static final ThreadMXBean threadBean = ManagementFactory
+            .getThreadMXBean();
+
+    /** Name of the source file; null for aggregated statistics. */
+    private String fileName;
+
+    /** Maps phases to their measurements, in the order first entered. */
+    private LinkedHashMap<String, Measurement> phases;
+
+    /**
+     * Maps the names of counted things to their counts, each held in an array
+     * of one, so that counting does not box.
+     */
+    private LinkedHashMap<String, long[]> counts;
+
+    /**
+     * Readings taken when the phases that have been entered, but not yet left,
+     * were entered; adjusted to exclude nested phases.
+     */
+    private Stack<Measurement> started;
+
+    /**
+     * Construct an empty Statistics for the specified source file.
+     *
+     * @param fileName
+     *            name of the source file; null for aggregated statistics.
+     */
+
+    public Statistics(String fileName) {
+        this.fileName = fileName;
+        phases = new LinkedHashMap<String, Measurement>();
+        counts = new LinkedHashMap<String, long[]>();
+        started = new Stack<Measurement>();
+    }
+
+    /**
+     * Enter the specified phase.
+     *
+     * @param phase
+     *            name of the phase.
+     */
+
+    public void start(String phase) {
+        if (!phases.containsKey(phase)) {
+            phases.put(phase, new Measurement());
+        }
+        started.push(now());
+    }
+
+    /**
+     * Leave the specified phase, which must be the one entered last.
+     *
+     * @param phase
+     *            name of the phase.
+     */
+
+    public void stop(String phase) {
+        Measurement elapsed = now();
+        elapsed.subtract(started.pop());
+        phases.get(phase).add(elapsed);
+        if (!started.isEmpty()) {
+            // Move the enclosing phase's start forward, so that what was
+            // spent in this phase is not measured again for it.
+            started.peek().add(elapsed);
+        }
+    }
+
+    /**
+     * Add the specified amount to the count of the specified thing.
+     *
+     * @param name
+     *            name of the thing counted.
+     * @param amount
+     *            amount to add.
+     */
+
+    public void count(String name, long amount) {
+        long[] count = counts.get(name);
+        if (count == null) {
+            count = new long[1];
+            counts.put(name, count);
+        }
+        count[0] += amount;
+    }
+
+    /**
+     * Add the measurements and counts of the specified statistics to these.
+     *
+     * @param statistics
+     *            the statistics to add.
+     */
+
+    public void add(Statistics statistics) {
+        for (Map.Entry<String, Measurement> entry : statistics.phases
+                .entrySet()) {
+            Measurement measurement = phases.get(entry.getKey());
+            if (measurement == null) {
+                measurement = new Measurement();
+                phases.put(entry.getKey(), measurement);
+            }
+            measurement.add(entry.getValue());
+        }
+        for (Map.Entry<String, long[]> entry : statistics.counts.entrySet()) {
+            count(entry.getKey(), entry.getValue()[0]);
+        }
+    }
+
+    /**
+     * Return a JSON document reporting the statistics for each of the
+     * specified source files, their totals, and the wall time of the whole
+     * run.
+     *
+     * @param files
+     *            statistics for each source file compiled.
+     * @param wallNanos
+     *            wall time of the run, in nanoseconds.
+     * @return the JSON document.
+     */
+
+    public static String toJson(ArrayList<Statistics> files, long wallNanos) {
+        Statistics total = new Statistics(null);
+        StringBuilder b = new StringBuilder();
+        b.append("{\n  \"wallNanos\": ").append(wallNanos).append(",\n");
+        b.append("  \"files\": [");
+        for (int i = 0; i < files.size(); i++) {
+            b.append(i == 0 ? "\n" : ",\n");
+            files.get(i).toJson(b, "    ");
+            total.add(files.get(i));
+        }
+        b.append("\n  ],\n  \"total\": ");
+        total.toJson(b, "  ");
+        b.append("\n}");
+        return b.toString();
+    }
+
+    /**
+     * Append these statistics to the specified builder as a JSON object.
+     *
+     * @param b
+     *            the builder.
+     * @param indent
+     *            indentation of the object.
+     */
+
+    private void toJson(StringBuilder b, String indent) {
+        b.append(fileName == null ? "{\n" : indent + "{\n");
+        if (fileName != null) {
+            b.append(indent).append("  \"file\": \"").append(
+                    Util.escapeJson(fileName)).append("\",\n");
+        }
+        b.append(indent).append("  \"phases\": {");
+        String separator = "\n";
+        for (Map.Entry<String, Measurement> entry : phases.entrySet()) {
+            Measurement measurement = entry.getValue();
+            b.append(separator).append(indent).append("    \"").append(
+                    entry.getKey()).append("\": {\"wallNanos\": ").append(
+                    measurement.wall).append(", \"cpuNanos\": ").append(
+                    measurement.cpu).append(", \"allocatedBytes\": ").append(
+                    measurement.allocated).append("}");
+            separator = ",\n";
+        }
+        b.append(phases.isEmpty() ? "},\n" : "\n" + indent + "  },\n");
+        b.append(indent).append("  \"counts\": {");
+        separator = "\n";
+        for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+            b.append(separator).append(indent).append("    \"").append(
+                    entry.getKey()).append("\": ").append(entry.getValue()[0]);
+            separator = ",\n";
+        }
+        b.append(counts.isEmpty() ? "}\n" : "\n" + indent + "  }\n");
+        b.append(indent).append("}");
+    }
+
+    /**
+     * Return the current readings of the clocks and the allocation counter of
+     * the current thread.
+     *
+     * @return the readings.
+     */
+
+    private static Measurement now() {
+        Measurement measurement = new Measurement();
+        measurement.wall = System.nanoTime();
+        measurement.cpu = threadBean.isCurrentThreadCpuTimeSupported() ? threadBean
+                .getCurrentThreadCpuTime()
+                : -1;
+        measurement.allocated = -1;
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+            if (bean.isThreadAllocatedMemorySupported()
+                    && bean.isThreadAllocatedMemoryEnabled()) {
+                measurement.allocated = bean.getThreadAllocatedBytes(Thread
+                        .currentThread().getId());
+            }
+        }
+        return measurement;
+    }
+
+}
+
+/**
+ * Wall time, CPU time (both in nanoseconds) and bytes allocated; either
+ * readings or differences between readings. An unavailable value is -1.
+ */
+
+class Measurement {
+
+    /** Wall time. */
+    public long wall;
+
+    /** CPU time. */
+    public long cpu;
+
+    /** Bytes allocated. */
+    public long allocated;
+
+    /**
+     * Add the specified measurement to this one.
+     *
+     * @param that
+     *            the measurement to add.
+     */
+
+    public void add(Measurement that) {
+        wall += that.wall;
+        cpu = cpu < 0 || that.cpu < 0 ? -1 : cpu + that.cpu;
+        allocated = allocated < 0 || that.allocated < 0 ? -1 : allocated
+                + that.allocated;
+    }
+
+    /**
+     * Subtract the specified measurement from this one.
+     *
+     * @param that
+     *            the measurement to subtract.
+     */
+
+    public void subtract(Measurement that) {
+        wall -= that.wall;
+        cpu = cpu < 0 || that.cpu < 0 ? -1 : cpu - that.cpu;
+        allocated = allocated < 0 || that.allocated < 0 ? -1 : allocated
+                - that.allocated;
+    }
+
+}
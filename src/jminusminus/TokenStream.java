@@ -0,0 +1,240 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+/**
+ * A sequence of scanned tokens, kept in flat arrays rather than as TokenInfo
+ * objects. For each token there is its kind, its line, its offset and length
+ * in the source, and, for identifiers and literals, the symbol of its image
+ * in a NameTable; other tokens have -1 for a symbol, their image being that of
+ * their kind. Tokens are referred to by their index in the stream.
+ *
+ * The arrays are used as a ring buffer: once the tokens before some index are
+ * no longer needed, and say so through release(), their slots are reused for
+ * the tokens that follow. So the stream only takes as much memory as the
+ * tokens still needed, which for a parser is those back to the position
+ * recorded first for lookahead.
+ */
+
+class TokenStream {
+
+    /** All token kinds, by ordinal. */
+    private static final TokenKind[] KINDS = TokenKind.values();
+
+    /** The table holding the images of the tokens. */
+    private NameTable names;
+
+    /**
+     * Ordinals of the kinds of the tokens, as unsigned bytes (so there may be
+     * up to 256 kinds).
+     */
+    private byte[] kinds;
+
+    /** Symbols of the images of the tokens, or -1. */
+    private int[] symbols;
+
+    /** Lines of the tokens. */
+    private int[] lines;
+
+    /** Offsets of the tokens in the source. */
+    private int[] offsets;
+
+    /** Lengths of the tokens in the source. */
+    private int[] lengths;
+
+    /** Number of tokens added to the stream. */
+    private int size;
+
+    /** Index of the first token that has not been released. */
+    private int first;
+
+    /** Length of the arrays (a power of 2) less 1, for indexing them. */
+    private int mask;
+
+    /**
+     * Construct an empty TokenStream whose images are in the specified table.
+     *
+     * @param names
+     *            the table holding the images of the tokens.
+     */
+
+    public TokenStream(NameTable names) {
+        this.names = names;
+        kinds = new byte[1024];
+        symbols = new int[1024];
+        lines = new int[1024];
+        offsets = new int[1024];
+        lengths = new int[1024];
+        size = 0;
+        first = 0;
+        mask = kinds.length - 1;
+    }
+
+    /**
+     * Add a token to the end of the stream.
+     *
+     * @param kind
+     *            kind of the token.
+     * @param symbol
+     *            symbol of its image, or -1.
+     * @param line
+     *            its line.
+     * @param offset
+     *            its offset in the source.
+     * @param length
+     *            its length in the source.
+     * @return index of the token.
+     */
+
+    public int add(TokenKind kind, int symbol, int line, int offset, int length) {
+        if (size - first == kinds.length) {
+            grow();
+        }
+        int slot = size & mask;
+        kinds[slot] = (byte) kind.ordinal();
+        symbols[slot] = symbol;
+        lines[slot] = line;
+        offsets[slot] = offset;
+        lengths[slot] = length;
+        return size++;
+    }
+
+    /**
+     * Release the tokens before the specified index; they are no longer
+     * needed, and their slots may be reused.
+     *
+     * @param index
+     *            index of the first token still needed.
+     */
+
+    public void release(int index) {
+        if (index > first) {
+            first = Math.min(index, size);
+        }
+    }
+
+    /**
+     * Return the number of tokens added to the stream, which is the index of
+     * the next token to be added.
+     *
+     * @return the number of tokens.
+     */
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the kind of the specified token.
+     *
+     * @param i
+     *            index of the token.
+     * @return its kind.
+     */
+
+    public TokenKind kind(int i) {
+        return KINDS[kinds[i & mask] & 0xff];
+    }
+
+    /**
+     * Return the symbol of the image of the specified token.
+     *
+     * @param i
+     *            index of the token.
+     * @return its symbol, or -1 if its image is that of its kind.
+     */
+
+    public int symbol(int i) {
+        return symbols[i & mask];
+    }
+
+    /**
+     * Return the image of the specified token.
+     *
+     * @param i
+     *            index of the token.
+     * @return its image.
+     */
+
+    public String image(int i) {
+        int symbol = symbols[i & mask];
+        return symbol == -1 ? kind(i).toString() : names.name(symbol);
+    }
+
+    /**
+     * Return the line of the specified token.
+     *
+     * @param i
+     *            index of the token.
+     * @return its line.
+     */
+
+    public int line(int i) {
+        return lines[i & mask];
+    }
+
+    /**
+     * Return the offset in the source of the specified token.
+     *
+     * @param i
+     *            index of the token.
+     * @return its offset.
+     */
+
+    public int offset(int i) {
+        return offsets[i & mask];
+    }
+
+    /**
+     * Return the length in the source of the specified token.
+     *
+     * @param i
+     *            index of the token.
+     * @return its length.
+     */
+
+    public int length(int i) {
+        return lengths[i & mask];
+    }
+
+    /**
+     * Return the specified token as a TokenInfo.
+     *
+     * @param i
+     *            index of the token.
+     * @return the token.
+     */
+
+    public TokenInfo token(int i) {
+        return new TokenInfo(kind(i), image(i), line(i));
+    }
+
+    /**
+     * Double the capacity of the arrays, keeping the tokens that have not been
+     * released in the slots for their indices.
+     */
+
+    private void grow() {
+        int capacity = 2 * kinds.length;
+        int grownMask = capacity - 1;
+        byte[] grownKinds = new byte[capacity];
+        int[] grownSymbols = new int[capacity];
+        int[] grownLines = new int[capacity];
+        int[] grownOffsets = new int[capacity];
+        int[] grownLengths = new int[capacity];
+        for (int i = first; i < size; i++) {
+            grownKinds[i & grownMask] = kinds[i & mask];
+            grownSymbols[i & grownMask] = symbols[i & mask];
+            grownLines[i & grownMask] = lines[i & mask];
+            grownOffsets[i & grownMask] = offsets[i & mask];
+            grownLengths[i & grownMask] = lengths[i & mask];
+        }
+        kinds = grownKinds;
+        symbols = grownSymbols;
+        lines = grownLines;
+        offsets = grownOffsets;
+        lengths = grownLengths;
+        mask = grownMask;
+    }
+
+}
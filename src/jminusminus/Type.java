@@ -8,7 +8,7 @@ import java.util.Arrays;
 import java.util.Deque;
 import java.util.ArrayList;
 import java.util.ArrayDeque;
-import java.util.Hashtable;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * For representing j-- types. All types are represented underneath (in the
@@ -29,8 +29,35 @@ class Type {
     /** The Type's internal (Java) representation. * */
     private Class<?> classRep;
 
-    /** Maps type names to their Type representations. */
-    private static Hashtable<String, Type> types = new Hashtable<String, Type>();
+    /**
+     * Index of the members of the class that classRep represents; built when
+     * first needed, and dropped when classRep is set.
+     */
+    private volatile MemberIndex members;
+
+    /** The JVM descriptor for this type; computed when first needed. */
+    private String descriptor;
+
+    /**
+     * Maps the descriptors of types (but those declared in the compilation
+     * unit being compiled) to their Type representations.
+     */
+    private static ConcurrentHashMap<String, Type> types = new ConcurrentHashMap<String, Type>();
+
+    /**
+     * The Type representation of each class, as typeFor() first found it in
+     * types, or in the types of its compilation session; it saves making the
+     * class's descriptor for each lookup.
+     */
+    private static ClassValue<Type> typesOfClasses = new ClassValue<Type>() {
+        protected Type computeValue(Class<?> classRep) {
+            ConcurrentHashMap<String, Type> table = types;
+            if (classRep.getClassLoader() instanceof ByteClassLoader) {
+                table = CompilationSession.current().types();
+            }
+            return typeFor(table, classRep);
+        }
+    };
 
     /** The primitive type, int. */
     public final static Type INT = typeFor(int.class);
@@ -104,16 +131,61 @@ class Type {
     /**
      * Construct a Type representation for a type from its (Java) Class
      * representation. Make sure there is a unique Type for each unique type.
+     * Types declared in the compilation unit being compiled (whose classes
+     * are loaded by a ByteClassLoader) are unique within the current
+     * compilation session; all other types are shared.
      * 
      * @param classRep
      *            the Java representation.
      */
 
     public static Type typeFor(Class<?> classRep) {
-        if (types.get(descriptorFor(classRep)) == null) {
-            types.put(descriptorFor(classRep), new Type(classRep));
+        return classRep == null ? typeFor(types, null) : typesOfClasses
+                .get(classRep);
+    }
+
+    /**
+     * Return the Type representation, in the specified table, of the type
+     * having the specified class representation, adding one if there is
+     * none.
+     * 
+     * @param table
+     *            maps descriptors to types.
+     * @param classRep
+     *            the Java representation.
+     * @return the Type.
+     */
+
+    private static Type typeFor(ConcurrentHashMap<String, Type> table,
+            Class<?> classRep) {
+        String descriptor = descriptorFor(classRep);
+        Type type = table.get(descriptor);
+        if (type == null) {
+            Type added = new Type(classRep);
+            type = table.putIfAbsent(descriptor, added);
+            if (type == null) {
+                type = added;
+            }
         }
-        return types.get(descriptorFor(classRep));
+        return type;
+    }
+
+    /**
+     * Return the class with the specified (fully qualified) name, as for an
+     * import or a qualified type name, without initializing it: only its
+     * members are wanted, and its static initializers (of a library's classes,
+     * say) are not the compiler's to run.
+     * 
+     * @param name
+     *            the fully qualified name of the class.
+     * @return the class.
+     * @throws ClassNotFoundException
+     *             if there is no such class.
+     */
+
+    public static Class<?> classFor(String name)
+            throws ClassNotFoundException {
+        return Class.forName(name, false, Type.class.getClassLoader());
     }
 
     /**
@@ -137,10 +209,14 @@ class Type {
 
     public void setClassRep(Class<?> classRep) {
         this.classRep = classRep;
+        members = null;
+        descriptor = null;
     }
 
     /**
-     * Type equality is based on the equality of descriptors.
+     * Type equality is based on the equality of descriptors. As typeFor()
+     * gives a unique Type for each type, equal types are most often the same
+     * Type, which is checked first.
      * 
      * @param that
      *            the other Type.
@@ -148,7 +224,7 @@ class Type {
      */
 
     public boolean equals(Type that) {
-        return this.toDescriptor().equals(that.toDescriptor());
+        return this == that || this.toDescriptor().equals(that.toDescriptor());
     }
 
     /**
@@ -356,11 +432,33 @@ class Type {
                 return;
             }
         }
-        JAST.compilationUnit.reportSemanticError(line,
+        JAST.compilationUnit().reportSemanticError(line,
                 "Type %s doesn't match any of the expected types %s", this,
                 Arrays.toString(expectedTypes));
     }
 
+    /**
+     * An assertion that this type matches one of the two specified types, as
+     * for the operands of arithmetic operators. It is the same as the general
+     * assertion, but makes no array of the types unless there is a mismatch.
+     *
+     * @param line
+     *            the line near which the mismatch occurs.
+     * @param expectedType1
+     *            first expected type.
+     * @param expectedType2
+     *            second expected type.
+     */
+
+    public void mustMatchOneOf(int line, Type expectedType1,
+            Type expectedType2) {
+        if (this == Type.ANY || matchesExpected(expectedType1)
+                || matchesExpected(expectedType2)) {
+            return;
+        }
+        mustMatchOneOf(line, new Type[] { expectedType1, expectedType2 });
+    }
+
     /**
      * An assertion that this type matches the specified type. If there is no
      * match, an error message is written.
@@ -373,7 +471,7 @@ class Type {
 
     public void mustMatchExpected(int line, Type expectedType) {
         if (!matchesExpected(expectedType)) {
-            JAST.compilationUnit.reportSemanticError(line,
+            JAST.compilationUnit().reportSemanticError(line,
                     "Type %s doesn't match type %s", this, expectedType);
         }
     }
@@ -449,7 +547,12 @@ class Type {
      */
 
     public String toDescriptor() {
-        return descriptorFor(classRep);
+        String descriptor = this.descriptor;
+        if (descriptor == null) {
+            descriptor = descriptorFor(classRep);
+            this.descriptor = descriptor;
+        }
+        return descriptor;
     }
 
     /**
@@ -461,7 +564,7 @@ class Type {
      * @return the JVM descriptor.
      */
 
-    private static String descriptorFor(Class<?> cls) {
+    static String descriptorFor(Class<?> cls) {
         return cls == null ? "V" : cls == void.class ? "V"
                 : cls.isArray() ? "[" + descriptorFor(cls.getComponentType())
                         : cls.isPrimitive() ? (cls == int.class ? "I"
@@ -536,32 +639,7 @@ class Type {
      */
 
     public Method methodFor(String name, Type[] argTypes) {
-        Class[] classes = new Class[argTypes.length];
-        for (int i = 0; i < argTypes.length; i++) {
-            classes[i] = argTypes[i].classRep;
-        }
-
-    	Deque<Class<?>> clsStack = new ArrayDeque<Class<?>>();
-    	clsStack.add(classRep);
-        
-        while (!clsStack.isEmpty()) {
-        	Class<?> cls = clsStack.pop();
-
-            java.lang.reflect.Method[] methods = cls.getDeclaredMethods();
-            for (java.lang.reflect.Method method : methods) {
-                if (method.getName().equals(name)
-                        && Type.argTypesMatch(classes, method
-                                .getParameterTypes())) {
-                    return new Method(method);
-                }
-            }
-            
-            if (cls.getSuperclass() != null)
-            	clsStack.add(cls.getSuperclass());
-            for (Class<?> clsInterface : cls.getInterfaces())
-            	clsStack.add(clsInterface);
-        }
-        return null;
+        return members().methodFor(name, argTypes);
     }
 
     /**
@@ -576,20 +654,7 @@ class Type {
      */
 
     public Constructor constructorFor(Type[] argTypes) {
-        Class[] classes = new Class[argTypes.length];
-        for (int i = 0; i < argTypes.length; i++) {
-            classes[i] = argTypes[i].classRep;
-        }
-
-        // Search only this class (we don't inherit constructors)
-        java.lang.reflect.Constructor[] constructors = classRep
-                .getDeclaredConstructors();
-        for (java.lang.reflect.Constructor constructor : constructors) {
-            if (argTypesMatch(classes, constructor.getParameterTypes())) {
-                return new Constructor(constructor);
-            }
-        }
-        return null;
+        return members().constructorFor(argTypes);
     }
 
     /**
@@ -601,47 +666,36 @@ class Type {
      */
 
     public Field fieldFor(String name) {
-    	Deque<Class<?>> clsStack = new ArrayDeque<Class<?>>();
-    	clsStack.add(classRep);
-        
-        while (!clsStack.isEmpty()) {
-        	Class<?> cls = clsStack.pop();
-        	
-            java.lang.reflect.Field[] fields = cls.getDeclaredFields();
-            for (java.lang.reflect.Field field : fields) {
-                if (field.getName().equals(name)) {
-                    return new Field(field);
-                }
-            }
-            
-            if (cls.getSuperclass() != null)
-            	clsStack.add(cls.getSuperclass());
-            for (Class<?> clsInterface : cls.getInterfaces())
-            	clsStack.add(clsInterface);
-        }
-        return null;
+        return members().fieldFor(name);
     }
 
+    /**
+     * Return the name of the class that declares the field having this name.
+     * 
+     * @param name
+     *            the name of the field.
+     * @return the name of its declaring class, or null if it's not there.
+     */
+
     public String targetFor(String name) {
-    	Deque<Class<?>> clsStack = new ArrayDeque<Class<?>>();
-    	clsStack.add(classRep);
-        
-        while (!clsStack.isEmpty()) {
-        	Class<?> cls = clsStack.pop();
-        	
-            java.lang.reflect.Field[] fields = cls.getDeclaredFields();
-            for (java.lang.reflect.Field field : fields) {
-                if (field.getName().equals(name)) {
-                    return cls.getName();
-                }
-            }
-            
-            if (cls.getSuperclass() != null)
-            	clsStack.add(cls.getSuperclass());
-            for (Class<?> clsInterface : cls.getInterfaces())
-            	clsStack.add(clsInterface);
+        Field field = fieldFor(name);
+        return field == null ? null : field.member().getDeclaringClass()
+                .getName();
+    }
+
+    /**
+     * Return the index of the members of this type, building it if need be.
+     * 
+     * @return the index.
+     */
+
+    private MemberIndex members() {
+        MemberIndex members = this.members;
+        if (members == null) {
+            members = new MemberIndex(classRep);
+            this.members = members;
         }
-        return null;
+        return members;
     }
 
     /**
@@ -699,7 +753,7 @@ class Type {
                             .isJavaAssignableFrom(this)) {
                 return true;
             } else {
-                JAST.compilationUnit.reportSemanticError(line,
+                JAST.compilationUnit().reportSemanticError(line,
                         "The protected member, " + member.name()
                                 + ", is not accessible.");
                 return false;
@@ -710,7 +764,7 @@ class Type {
                     descriptorFor(member.member().getDeclaringClass()))) {
                 return true;
             } else {
-                JAST.compilationUnit.reportSemanticError(line,
+                JAST.compilationUnit().reportSemanticError(line,
                         "The private member, " + member.name()
                                 + ", is not accessible.");
                 return false;
@@ -721,7 +775,7 @@ class Type {
         if (packageName().equals(member.declaringType().packageName())) {
             return true;
         } else {
-            JAST.compilationUnit.reportSemanticError(line, "The member, "
+            JAST.compilationUnit().reportSemanticError(line, "The member, "
                     + member.name()
                     + ", is not accessible because it's in a different "
                     + "package.");
@@ -770,7 +824,7 @@ class Type {
                         : p2.getName()))) {
             return true;
         } else {
-            JAST.compilationUnit.reportSemanticError(line, "The type, "
+            JAST.compilationUnit().reportSemanticError(line, "The type, "
                     + type.getCanonicalName() + ", is not accessible from "
                     + referencingType.getCanonicalName());
             return false;
@@ -844,6 +898,7 @@ class TypeName extends Type {
     public TypeName(int line, String name) {
         this.line = line;
         this.name = name;
+        CompilationSession.current().created(this);
     }
 
     /**
@@ -856,6 +911,18 @@ class TypeName extends Type {
         return line;
     }
 
+    /**
+     * Move the identifier by the specified number of lines, after lines were
+     * added to or removed from the source before it.
+     * 
+     * @param delta
+     *            number of lines added (or, if negative, removed).
+     */
+
+    public void shiftLine(int delta) {
+        line += delta;
+    }
+
     /**
      * Return the JVM name for this (identifier) type.
      * 
@@ -911,13 +978,13 @@ class TypeName extends Type {
         if (resolvedType == null) {
             // Try loading a type with the give fullname
             try {
-                resolvedType = typeFor(Class.forName(name));
+                resolvedType = typeFor(classFor(name));
                 context.addType(line, resolvedType);
                 // context.compilationUnitContext().addEntry(line,
                 // resolvedType.toString(),
                 // new TypeNameDefn(resolvedType));
             } catch (Exception e) {
-                JAST.compilationUnit.reportSemanticError(line,
+                JAST.compilationUnit().reportSemanticError(line,
                         "Unable to locate a type named %s", name);
                 resolvedType = Type.ANY;
             }
@@ -1003,3 +1070,238 @@ class ArrayTypeName extends Type {
     }
 
 }
+
+/**
+ * An index of the members of a class (with those it inherits), by name, for
+ * Type.methodFor(), fieldFor() and constructorFor(). The first lookup of a
+ * name searches the class and its supertypes through reflection, as those
+ * methods once did on every call, and the members found are kept, along with
+ * the descriptors of the methods' parameter types; later lookups of the name
+ * are a hash lookup, and a match of the argument types against those of the
+ * methods of that name.
+ * 
+ * A Type's index may be shared by the threads of a parallel compilation, so
+ * it is kept in concurrent maps; two threads looking up a new name at once
+ * both search for it, and find the same members.
+ */
+
+class MemberIndex {
+
+    /** Marks a name for which no field was found. */
+    private static final Object NO_FIELD = new Object();
+
+    /** The class whose members are indexed. */
+    private Class<?> classRep;
+
+    /** Methods, with the descriptors of their parameter types, by name. */
+    private ConcurrentHashMap<String, IndexedMethod[]> methods;
+
+    /** Fields (or NO_FIELD), by name. */
+    private ConcurrentHashMap<String, Object> fields;
+
+    /** Constructors, with the descriptors of their parameter types. */
+    private volatile IndexedMethod[] constructors;
+
+    /**
+     * Construct an empty index of the members of the specified class.
+     * 
+     * @param classRep
+     *            the class.
+     */
+
+    public MemberIndex(Class<?> classRep) {
+        this.classRep = classRep;
+        methods = new ConcurrentHashMap<String, IndexedMethod[]>();
+        fields = new ConcurrentHashMap<String, Object>();
+    }
+
+    /**
+     * Find the method having the specified name and argument types, as
+     * Type.methodFor() does.
+     * 
+     * @param name
+     *            the method name.
+     * @param argTypes
+     *            the argument types.
+     * @return the Method, or null.
+     */
+
+    public Method methodFor(String name, Type[] argTypes) {
+        IndexedMethod[] named = methods.get(name);
+        if (named == null) {
+            named = methodsNamed(name);
+            methods.put(name, named);
+        }
+        IndexedMethod found = match(named, argTypes);
+        return found == null ? null : (Method) found.member;
+    }
+
+    /**
+     * Find the constructor having the specified argument types, as
+     * Type.constructorFor() does.
+     * 
+     * @param argTypes
+     *            the argument types.
+     * @return the Constructor, or null.
+     */
+
+    public Constructor constructorFor(Type[] argTypes) {
+        IndexedMethod[] constructors = this.constructors;
+        if (constructors == null) {
+            // We don't inherit constructors
+            java.lang.reflect.Constructor[] declared = classRep
+                    .getDeclaredConstructors();
+            constructors = new IndexedMethod[declared.length];
+            for (int i = 0; i < declared.length; i++) {
+                constructors[i] = new IndexedMethod(new Constructor(
+                        declared[i]), declared[i].getParameterTypes());
+            }
+            this.constructors = constructors;
+        }
+        IndexedMethod found = match(constructors, argTypes);
+        return found == null ? null : (Constructor) found.member;
+    }
+
+    /**
+     * Find the field having the specified name, as Type.fieldFor() does.
+     * 
+     * @param name
+     *            the field name.
+     * @return the Field, or null.
+     */
+
+    public Field fieldFor(String name) {
+        Object field = fields.get(name);
+        if (field == null) {
+            field = fieldNamed(name);
+            fields.put(name, field == null ? NO_FIELD : field);
+        }
+        return field == NO_FIELD ? null : (Field) field;
+    }
+
+    /**
+     * Return the methods having the specified name, in the order in which
+     * they are searched for a match: those the class declares, and then those
+     * of its supertypes, breadth first.
+     * 
+     * @param name
+     *            the method name.
+     * @return the methods.
+     */
+
+    private IndexedMethod[] methodsNamed(String name) {
+        ArrayList<IndexedMethod> named = new ArrayList<IndexedMethod>();
+        Deque<Class<?>> clsStack = new ArrayDeque<Class<?>>();
+        clsStack.add(classRep);
+        while (!clsStack.isEmpty()) {
+            Class<?> cls = clsStack.pop();
+            for (java.lang.reflect.Method method : cls.getDeclaredMethods()) {
+                if (method.getName().equals(name)) {
+                    named.add(new IndexedMethod(new Method(method), method
+                            .getParameterTypes()));
+                }
+            }
+            if (cls.getSuperclass() != null) {
+                clsStack.add(cls.getSuperclass());
+            }
+            for (Class<?> clsInterface : cls.getInterfaces()) {
+                clsStack.add(clsInterface);
+            }
+        }
+        return named.toArray(new IndexedMethod[named.size()]);
+    }
+
+    /**
+     * Return the first field having the specified name, searching the class
+     * and then its supertypes, breadth first.
+     * 
+     * @param name
+     *            the field name.
+     * @return the Field, or null.
+     */
+
+    private Field fieldNamed(String name) {
+        Deque<Class<?>> clsStack = new ArrayDeque<Class<?>>();
+        clsStack.add(classRep);
+        while (!clsStack.isEmpty()) {
+            Class<?> cls = clsStack.pop();
+            for (java.lang.reflect.Field field : cls.getDeclaredFields()) {
+                if (field.getName().equals(name)) {
+                    return new Field(field);
+                }
+            }
+            if (cls.getSuperclass() != null) {
+                clsStack.add(cls.getSuperclass());
+            }
+            for (Class<?> clsInterface : cls.getInterfaces()) {
+                clsStack.add(clsInterface);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the first of the specified methods whose parameter types match
+     * the specified argument types exactly (see Type.argTypesMatch()).
+     * 
+     * @param candidates
+     *            the methods.
+     * @param argTypes
+     *            the argument types.
+     * @return the method, or null if none matches.
+     */
+
+    private static IndexedMethod match(IndexedMethod[] candidates,
+            Type[] argTypes) {
+        String[] descriptors = null;
+        for (IndexedMethod candidate : candidates) {
+            if (candidate.parameters.length != argTypes.length) {
+                continue;
+            }
+            if (descriptors == null) {
+                descriptors = new String[argTypes.length];
+                for (int i = 0; i < argTypes.length; i++) {
+                    descriptors[i] = Type.descriptorFor(argTypes[i]
+                            .classRep());
+                }
+            }
+            if (Arrays.equals(descriptors, candidate.parameters)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+}
+
+/**
+ * A method or constructor in a MemberIndex, with the descriptors of its
+ * parameter types.
+ */
+
+class IndexedMethod {
+
+    /** The Method or Constructor. */
+    public Member member;
+
+    /** Descriptors of its parameter types. */
+    public String[] parameters;
+
+    /**
+     * Construct an IndexedMethod for the specified method or constructor.
+     * 
+     * @param member
+     *            the Method or Constructor.
+     * @param parameterTypes
+     *            its parameter types.
+     */
+
+    public IndexedMethod(Member member, Class<?>[] parameterTypes) {
+        this.member = member;
+        parameters = new String[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            parameters[i] = Type.descriptorFor(parameterTypes[i]);
+        }
+    }
+
+}
@@ -2,6 +2,9 @@
 
 package jminusminus;
 
+import java.io.PrintStream;
+import java.util.Formatter;
+
 /**
  * This class defines helper functions.
  */
@@ -18,12 +21,64 @@ class Util {
      */
 
     public static String escapeSpecialXMLChars(String s) {
-        String escapedString = s.replaceAll("&", "&amp;");
-        escapedString = escapedString.replaceAll("<", "&lt;");
-        escapedString = escapedString.replaceAll(">", "&gt;");
-        escapedString = escapedString.replaceAll("\"", "&quot;");
-        escapedString = escapedString.replaceAll("'", "&#39;");
-        return escapedString;
+        StringBuffer b = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            String escaped = c == '&' ? "&amp;" : c == '<' ? "&lt;"
+                    : c == '>' ? "&gt;" : c == '"' ? "&quot;"
+                            : c == '\'' ? "&#39;" : null;
+            if (escaped != null && b == null) {
+                // Most strings have nothing to escape, and are not copied
+                b = new StringBuffer(s.length() + 16);
+                b.append(s, 0, i);
+            }
+            if (escaped != null) {
+                b.append(escaped);
+            } else if (b != null) {
+                b.append(c);
+            }
+        }
+        return b == null ? s : b.toString();
+    }
+
+    /**
+     * Escape the specified string for use within a JSON string literal, and
+     * return the escaped string.
+     * 
+     * @param s
+     *            string to escape.
+     * @return the escaped string.
+     */
+
+    public static String escapeJson(String s) {
+        StringBuffer b = new StringBuffer();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '"':
+                b.append("\\\"");
+                break;
+            case '\\':
+                b.append("\\\\");
+                break;
+            case '\n':
+                b.append("\\n");
+                break;
+            case '\r':
+                b.append("\\r");
+                break;
+            case '\t':
+                b.append("\\t");
+                break;
+            default:
+                if (c < ' ') {
+                    b.append(String.format("\\u%04x", (int) c));
+                } else {
+                    b.append(c);
+                }
+            }
+        }
+        return b.toString();
     }
 
     /**
@@ -81,17 +136,43 @@ class Util {
 }
 
 /**
- * A utility class that allows pretty (indented) printing to STDOUT.
+ * A utility class that allows pretty (indented) printing to the output
+ * stream of the current compilation session.
+ * 
+ * What is printed is gathered in a buffer, and written to the stream a call
+ * at a time, or, for a buffered PrettyPrinter, once the buffer is full and
+ * when flush() is called, so that large outputs (such as the ASTs that -p, -pa
+ * and -a print) are written a few large chunks at a time. The output is the
+ * same either way.
  */
 
 class PrettyPrinter {
 
+    /** Number of characters that fill the buffer of a buffered printer. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** What println() ends a line with, as for a PrintStream. */
+    private static final String LINE_SEPARATOR = System
+            .getProperty("line.separator");
+
     /** Width of an indentation. */
     private int indentWidth;
 
     /** Current indentation (number of blank spaces). */
     private int indent;
 
+    /** Stream to print to. */
+    private PrintStream out;
+
+    /** Whether the buffer is written only when full or flushed. */
+    private boolean buffered;
+
+    /** What has been printed, but not yet written to the stream. */
+    private StringBuilder buffer;
+
+    /** Formatter for printf(), which formats into the buffer. */
+    private Formatter formatter;
+
     /**
      * Construct a PrettyPrinter with an indentation width of 2.
      */
@@ -108,8 +189,27 @@ class PrettyPrinter {
      */
 
     public PrettyPrinter(int indentWidth) {
+        this(indentWidth, false);
+    }
+
+    /**
+     * Construct a PrettyPrinter given the indentation width, and whether it
+     * is buffered; what a buffered printer prints is written to the stream
+     * only once the buffer is full, or when it is flushed.
+     * 
+     * @param indentWidth
+     *            number of blank spaces for an indent.
+     * @param buffered
+     *            whether the printer is buffered.
+     */
+
+    public PrettyPrinter(int indentWidth, boolean buffered) {
         this.indentWidth = indentWidth;
+        this.buffered = buffered;
         indent = 0;
+        out = CompilationSession.current().out();
+        buffer = new StringBuilder(buffered ? BUFFER_SIZE : 128);
+        formatter = new Formatter(buffer);
     }
 
     /**
@@ -131,16 +231,17 @@ class PrettyPrinter {
     }
 
     /**
-     * Print an empty line to STDOUT.
+     * Print an empty line to the output stream.
      */
 
     public void println() {
         doIndent();
-        System.out.println();
+        buffer.append(LINE_SEPARATOR);
+        written();
     }
 
     /**
-     * Print the specified string (followed by a newline) to STDOUT.
+     * Print the specified string (followed by a newline) to the output stream.
      * 
      * @param s
      *            string to print.
@@ -148,11 +249,12 @@ class PrettyPrinter {
 
     public void println(String s) {
         doIndent();
-        System.out.println(s);
+        buffer.append(s).append(LINE_SEPARATOR);
+        written();
     }
 
     /**
-     * Print the specified string to STDOUT.
+     * Print the specified string to the output stream.
      * 
      * @param s
      *            string to print.
@@ -160,11 +262,12 @@ class PrettyPrinter {
 
     public void print(String s) {
         doIndent();
-        System.out.print(s);
+        buffer.append(s);
+        written();
     }
 
     /**
-     * Print args to STDOUT according to the pecified format.
+     * Print args to the output stream according to the pecified format.
      * 
      * @param format
      *            format specifier.
@@ -174,16 +277,41 @@ class PrettyPrinter {
 
     public void printf(String format, Object... args) {
         doIndent();
-        System.out.printf(format, args);
+        formatter.format(format, args);
+        written();
     }
 
     /**
-     * Indent by printing spaces to STDOUT.
+     * Write what is in the buffer to the output stream, and flush the stream.
+     */
+
+    public void flush() {
+        if (buffer.length() > 0) {
+            out.print(buffer);
+            buffer.setLength(0);
+        }
+        out.flush();
+    }
+
+    /**
+     * Indent by printing spaces to the output stream.
      */
 
     private void doIndent() {
         for (int i = 0; i < indent; i++) {
-            System.out.print(" ");
+            buffer.append(' ');
+        }
+    }
+
+    /**
+     * Write the buffer to the output stream, after something has been printed
+     * into it, if the printer is not buffered or the buffer is full.
+     */
+
+    private void written() {
+        if (!buffered || buffer.length() >= BUFFER_SIZE) {
+            out.print(buffer);
+            buffer.setLength(0);
         }
     }
 
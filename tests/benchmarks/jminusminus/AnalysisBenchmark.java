@@ -0,0 +1,112 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of JCompilationUnit.preAnalyze(), analyze() and codegen(), in
+ * corpora per second. These phases rewrite the AST, so each invocation works
+ * on ASTs that are freshly parsed, and taken through the preceding phases,
+ * before it is timed.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalysisBenchmark {
+
+    @Param( { "pass", "spim", "synthetic" })
+    public String corpus;
+
+    private BenchmarkSources sources;
+
+    /** A compilation session for each source file. */
+    private CompilationSession[] sessions;
+
+    /** The AST for each source file. */
+    private JCompilationUnit[] asts;
+
+    @Setup(Level.Trial)
+    public void loadSources() throws IOException {
+        sources = new BenchmarkSources(corpus);
+        sessions = new CompilationSession[sources.sources.length];
+        asts = new JCompilationUnit[sources.sources.length];
+    }
+
+    /**
+     * Parse each source file in a new session, and take it through the
+     * specified phases.
+     */
+
+    private void prepare(boolean preAnalyze, boolean analyze) {
+        for (int i = 0; i < asts.length; i++) {
+            sessions[i] = BenchmarkSources.session();
+            sessions[i].enter();
+            asts[i] = sources.parse(i);
+            if (preAnalyze) {
+                asts[i].preAnalyze();
+            }
+            if (analyze) {
+                asts[i].analyze(null);
+            }
+            sessions[i].exit();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setUp(org.openjdk.jmh.infra.BenchmarkParams params) {
+        String benchmark = params.getBenchmark();
+        if (benchmark.endsWith(".preAnalyze")) {
+            prepare(false, false);
+        } else if (benchmark.endsWith(".analyze")) {
+            prepare(true, false);
+        } else {
+            prepare(true, true);
+        }
+    }
+
+    @Benchmark
+    public void preAnalyze() {
+        for (int i = 0; i < asts.length; i++) {
+            sessions[i].enter();
+            asts[i].preAnalyze();
+            sessions[i].exit();
+        }
+    }
+
+    @Benchmark
+    public void analyze() {
+        for (int i = 0; i < asts.length; i++) {
+            sessions[i].enter();
+            asts[i].analyze(null);
+            sessions[i].exit();
+        }
+    }
+
+    @Benchmark
+    public void codegen() {
+        for (int i = 0; i < asts.length; i++) {
+            sessions[i].enter();
+            asts[i].codegen(new CLEmitter(false));
+            sessions[i].exit();
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The j-- programs the benchmarks run on, and helpers for running the
+ * compiler phases on them. A corpus is one of
+ * 
+ * pass: the programs in tests/pass;
+ * 
+ * spim: the programs in tests/spim;
+ * 
+ * synthetic: a single large program from ProgramGenerator, which the SPIM
+ * back end can compile.
+ * 
+ * The tests directory is found through the j environment variable, which
+ * (as for the SPIM back end) names the root of the j-- distribution.
+ */
+
+class BenchmarkSources {
+
+    /** Names of the source files in the corpus. */
+    public String[] fileNames;
+
+    /** Contents of the source files in the corpus. */
+    public String[] sources;
+
+    /**
+     * Load the specified corpus.
+     * 
+     * @param corpus
+     *            pass, spim or synthetic.
+     * @throws IOException
+     *             if a source file cannot be read.
+     */
+
+    public BenchmarkSources(String corpus) throws IOException {
+        if (corpus.equals("synthetic")) {
+            fileNames = new String[] { "Synthetic.java" };
+            ProgramGenerator generator = new ProgramGenerator();
+            generator.classes = 4;
+            generator.methods = 50;
+            generator.statements = 20;
+            generator.loopDepth = 2;
+            generator.ifChain = 10;
+            generator.spim = true;
+            sources = new String[] { generator.generate() };
+            return;
+        }
+        File dir = new File(System.getenv("j"), "tests" + File.separator
+                + corpus);
+        File[] files = dir.listFiles();
+        if (files == null) {
+            throw new IOException("Cannot list " + dir);
+        }
+        Arrays.sort(files);
+        ArrayList<File> javaFiles = new ArrayList<File>();
+        for (File file : files) {
+            if (file.getName().endsWith(".java")) {
+                javaFiles.add(file);
+            }
+        }
+        fileNames = new String[javaFiles.size()];
+        sources = new String[javaFiles.size()];
+        for (int i = 0; i < fileNames.length; i++) {
+            fileNames[i] = javaFiles.get(i).getPath();
+            sources[i] = new String(Files.readAllBytes(javaFiles.get(i)
+                    .toPath()), Charset.defaultCharset());
+        }
+    }
+
+    /**
+     * Return a new compilation session whose output and diagnostics are
+     * discarded.
+     * 
+     * @return the session.
+     */
+
+    public static CompilationSession session() {
+        PrintStream discard = new PrintStream(new OutputStream() {
+            public void write(int b) {
+            }
+        });
+        return new CompilationSession(discard, discard);
+    }
+
+    /**
+     * Return a scanner for the specified source file of the corpus.
+     * 
+     * @param i
+     *            index of the source file.
+     * @return the scanner.
+     */
+
+    public LookaheadScanner scanner(int i) {
+        return new LookaheadScanner(fileNames[i], new StringReader(sources[i]));
+    }
+
+    /**
+     * Parse the specified source file of the corpus, in the current
+     * compilation session.
+     * 
+     * @param i
+     *            index of the source file.
+     * @return the AST.
+     */
+
+    public JCompilationUnit parse(int i) {
+        return new Parser(scanner(i)).compilationUnit();
+    }
+
+}
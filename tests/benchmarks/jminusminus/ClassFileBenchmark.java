@@ -0,0 +1,101 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of writing class files with CLEmitter.write(), in corpora per
+ * second, and of reading class files with CLAbsorber. The classes read are
+ * some of the compiler's own, found on the class path.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassFileBenchmark {
+
+    @Param( { "pass", "spim", "synthetic" })
+    public String corpus;
+
+    /** The classes read by absorb(). */
+    private static final String[] CLASS_NAMES = { "jminusminus/Parser",
+            "jminusminus/CLEmitter", "jminusminus/Scanner",
+            "jminusminus/NControlFlowGraph" };
+
+    /** Where the class files are written. */
+    private File destDir;
+
+    /**
+     * An emitter for each source file, holding the (last) class generated
+     * for it.
+     */
+    private CLEmitter[] emitters;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkSources sources = new BenchmarkSources(corpus);
+        destDir = Files.createTempDirectory("j--bench").toFile();
+        emitters = new CLEmitter[sources.sources.length];
+        for (int i = 0; i < emitters.length; i++) {
+            CompilationSession session = BenchmarkSources.session();
+            session.enter();
+            JCompilationUnit ast = sources.parse(i);
+            ast.preAnalyze();
+            ast.analyze(null);
+            emitters[i] = new CLEmitter(true);
+            emitters[i].destinationDir(destDir.getPath());
+            ast.codegen(emitters[i]);
+            session.exit();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        delete(destDir);
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    @Benchmark
+    public void write() {
+        for (CLEmitter emitter : emitters) {
+            emitter.write();
+        }
+    }
+
+    @Benchmark
+    public void absorb(Blackhole blackhole) {
+        for (String className : CLASS_NAMES) {
+            blackhole.consume(new CLAbsorber(className).classFile());
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import static jminusminus.TokenKind.EOF;
+
+/**
+ * Throughput of the scanner (Scanner.scan()) and of the parser
+ * (Parser.compilationUnit(), and ParallelParser.compilationUnit() on as many
+ * threads as there are processors), in corpora per second.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrontEndBenchmark {
+
+    @Param( { "pass", "spim", "synthetic" })
+    public String corpus;
+
+    private BenchmarkSources sources;
+
+    @Setup
+    public void setUp() throws IOException {
+        sources = new BenchmarkSources(corpus);
+        BenchmarkSources.session().enter();
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        for (int i = 0; i < sources.sources.length; i++) {
+            Scanner scanner = new Scanner(sources.fileNames[i],
+                    new StringReader(sources.sources[i]));
+            while (scanner.scan() != EOF) {
+                blackhole.consume(scanner.symbol());
+            }
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (int i = 0; i < sources.sources.length; i++) {
+            blackhole.consume(sources.parse(i));
+        }
+    }
+
+    @Benchmark
+    public void parallelParse(Blackhole blackhole) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < sources.sources.length; i++) {
+            blackhole.consume(new ParallelParser(sources.scanner(i), threads)
+                    .compilationUnit());
+        }
+    }
+
+}
@@ -0,0 +1,302 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+/**
+ * Generates large, valid j-- programs of a configurable shape, for measuring
+ * how the compiler scales. A program is a compilation unit with a number of
+ * classes, each with a number of static int methods. Every method is built
+ * from the same parts, each of which can be made as large as wanted:
+ *
+ * a run of straight-line arithmetic statements;
+ *
+ * a nest of while loops;
+ *
+ * a chain of if/else-if statements;
+ *
+ * a string concatenation of many terms;
+ *
+ * a number of distinct constants, which widen the constant pool.
+ *
+ * Each method calls the one before it in its class, and main() calls the last
+ * method of each class. When the program is meant for the SPIM back end, it
+ * sticks to what that back end supports: int arithmetic with small
+ * constants, the comparisons &lt;= and ==, static calls and string literals.
+ * There is no string concatenation then, the distinct constants are string
+ * literals printed with SPIM.printString(), and the if/else-if chain becomes
+ * a sequence of if/else statements.
+ *
+ * The generator can be run from the command line, to write a program to
+ * STDOUT; see main().
+ */
+
+class ProgramGenerator {
+
+    /** Name of the public class, which holds main(). */
+    public String name = "Synthetic";
+
+    /** Number of classes. */
+    public int classes = 1;
+
+    /** Number of methods in each class. */
+    public int methods = 10;
+
+    /** Number of straight-line statements in each method. */
+    public int statements = 10;
+
+    /** Depth of the nest of while loops in each method. */
+    public int loopDepth = 1;
+
+    /** Number of if/else-if statements in the chain in each method. */
+    public int ifChain = 1;
+
+    /** Number of terms in the string concatenation in each method. */
+    public int concatenation = 0;
+
+    /** Number of distinct constants in each method. */
+    public int constants = 0;
+
+    /** Whether the program is meant for the SPIM back end. */
+    public boolean spim = false;
+
+    /** The program being generated. */
+    private StringBuilder b;
+
+    /** For making constants distinct across the whole program. */
+    private int nextConstant;
+
+    /**
+     * Return the source of a program of the shape described by the fields.
+     *
+     * @return the source.
+     */
+
+    public String generate() {
+        b = new StringBuilder();
+        nextConstant = 0;
+        b.append(spim ? "import spim.SPIM;\n" : "import java.lang.System;\n");
+        for (int c = 0; c < classes; c++) {
+            b.append("\n");
+            if (c == 0) {
+                b.append("public ");
+            }
+            b.append("class ").append(className(c)).append(" {\n");
+            for (int m = 0; m < methods; m++) {
+                method(c, m);
+            }
+            if (c == 0) {
+                main();
+            }
+            b.append("}\n");
+        }
+        return b.toString();
+    }
+
+    /**
+     * Return the name of the specified class.
+     *
+     * @param c
+     *            index of the class.
+     * @return the name.
+     */
+
+    private String className(int c) {
+        return c == 0 ? name : name + c;
+    }
+
+    /**
+     * Append the specified method of the specified class.
+     *
+     * @param c
+     *            index of the class.
+     * @param m
+     *            index of the method.
+     */
+
+    private void method(int c, int m) {
+        b.append("\n    public static int m").append(m).append(
+                "(int a, int b) {\n");
+        b.append("        int x = a;\n");
+        b.append("        int y = b;\n");
+
+        // Straight-line code
+        for (int i = 0; i < statements; i++) {
+            if (i % 2 == 0) {
+                b.append("        x = x * 3 + y - ").append(i % 100).append(
+                        ";\n");
+            } else {
+                b.append("        y = y - x + ").append(i % 100).append(";\n");
+            }
+        }
+
+        // Nested loops
+        for (int d = 0; d < loopDepth; d++) {
+            indent(d + 2);
+            b.append("int i").append(d).append(" = 0;\n");
+            indent(d + 2);
+            b.append("while (i").append(d).append(" <= 1) {\n");
+        }
+        if (loopDepth > 0) {
+            indent(loopDepth + 2);
+            b.append("x = x + i").append(loopDepth - 1).append(";\n");
+        }
+        for (int d = loopDepth - 1; d >= 0; d--) {
+            indent(d + 3);
+            b.append("i").append(d).append(" = i").append(d).append(
+                    " + 1;\n");
+            indent(d + 2);
+            b.append("}\n");
+        }
+
+        // If/else-if chain; a sequence of if/else statements for SPIM,
+        // whose back end cannot yet join the branches of a chain
+        for (int i = 0; i < ifChain; i++) {
+            if (i == 0 || spim) {
+                b.append("        if");
+            } else {
+                b.append(" else if");
+            }
+            b.append(" (x == ").append(i % 100).append(") {\n");
+            b.append("            y = y + ").append(i % 100).append(";\n");
+            b.append("        }");
+            if (spim || i == ifChain - 1) {
+                b.append(" else {\n");
+                b.append("            y = y - 1;\n");
+                b.append("        }\n");
+            }
+        }
+
+        // String concatenation
+        if (!spim && concatenation > 0) {
+            b.append("        String s = \"\"");
+            for (int i = 0; i < concatenation; i++) {
+                b.append(i % 2 == 0 ? " + x" : " + \"s" + i + "\"");
+            }
+            b.append(";\n");
+        }
+
+        // Distinct constants
+        for (int i = 0; i < constants; i++) {
+            int constant = nextConstant++;
+            if (spim) {
+                b.append("        SPIM.printString(\"c").append(constant)
+                        .append("\");\n");
+            } else {
+                b.append("        x = x + ").append(100000 + constant).append(
+                        ";\n");
+            }
+        }
+
+        if (m > 0) {
+            b.append("        return x + y + ").append(className(c)).append(
+                    ".m").append(m - 1).append("(y, x);\n");
+        } else {
+            b.append("        return x + y;\n");
+        }
+        b.append("    }\n");
+    }
+
+    /**
+     * Append main(), which calls the last method of each class.
+     */
+
+    private void main() {
+        b.append("\n    public static void main(String[] args) {\n");
+        for (int c = 0; c < classes && methods > 0; c++) {
+            String call = className(c) + ".m" + (methods - 1) + "(3, 4)";
+            if (spim) {
+                b.append("        SPIM.printInt(").append(call).append(
+                        ");\n");
+            } else {
+                b.append("        System.out.println(").append(call).append(
+                        ");\n");
+            }
+        }
+        b.append("    }\n");
+    }
+
+    /**
+     * Append the specified level of indentation.
+     *
+     * @param level
+     *            the level.
+     */
+
+    private void indent(int level) {
+        for (int i = 0; i < level; i++) {
+            b.append("    ");
+        }
+    }
+
+    /**
+     * Print command-line usage.
+     */
+
+    private static void printUsage() {
+        String usage = "Usage: java jminusminus.ProgramGenerator <options>\n"
+                + "where possible options include:\n"
+                + "  -name <name>        Name of the public class; "
+                + "default = Synthetic\n"
+                + "  -classes <n>        Number of classes; default = 1\n"
+                + "  -methods <n>        Methods in each class; "
+                + "default = 10\n"
+                + "  -statements <n>     Straight-line statements in each "
+                + "method; default = 10\n"
+                + "  -loopDepth <n>      Depth of nested loops in each "
+                + "method; default = 1\n"
+                + "  -ifChain <n>        Length of the if/else-if chain in "
+                + "each method; default = 1\n"
+                + "  -concatenation <n>  Terms in a string concatenation in "
+                + "each method; default = 0\n"
+                + "  -constants <n>      Distinct constants in each method; "
+                + "default = 0\n"
+                + "  -spim               Only use what the SPIM back end "
+                + "supports\n";
+        System.out.println(usage);
+    }
+
+    /**
+     * Entry point; writes the program to STDOUT.
+     *
+     * @param args
+     *            command-line arguments.
+     */
+
+    public static void main(String[] args) {
+        ProgramGenerator generator = new ProgramGenerator();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-spim")) {
+                    generator.spim = true;
+                } else if (i + 1 == args.length) {
+                    printUsage();
+                    return;
+                } else if (args[i].equals("-name")) {
+                    generator.name = args[++i];
+                } else if (args[i].equals("-classes")) {
+                    generator.classes = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-methods")) {
+                    generator.methods = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-statements")) {
+                    generator.statements = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-loopDepth")) {
+                    generator.loopDepth = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-ifChain")) {
+                    generator.ifChain = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-concatenation")) {
+                    generator.concatenation = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-constants")) {
+                    generator.constants = Integer.parseInt(args[++i]);
+                } else {
+                    printUsage();
+                    return;
+                }
+            }
+        } catch (NumberFormatException e) {
+            printUsage();
+            return;
+        }
+        System.out.print(generator.generate());
+    }
+
+}
@@ -0,0 +1,111 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * How the time to compile a program grows with one dimension of its shape.
+ * For each shape, ProgramGenerator makes a small program, in which that one
+ * dimension (the number of straight-line statements, say) is multiplied by
+ * the scale. If doubling the scale more than doubles the time, something in
+ * the compiler is superlinear in that dimension. SpimScalingBenchmark does
+ * the same for the SPIM back end.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScalingBenchmark {
+
+    @Param( { "statements", "loopDepth", "ifChain", "concatenation",
+            "constants", "classes" })
+    public String shape;
+
+    @Param( { "1", "2", "4", "8" })
+    public int scale;
+
+    /** Source of the program. */
+    private String source;
+
+    @Setup
+    public void setUp() {
+        source = generator(shape, scale).generate();
+        BenchmarkSources.session().enter();
+    }
+
+    /**
+     * Return a generator for a small program with the specified dimension
+     * multiplied by the specified scale.
+     *
+     * @param shape
+     *            the dimension.
+     * @param scale
+     *            the scale.
+     * @return the generator.
+     */
+
+    static ProgramGenerator generator(String shape, int scale) {
+        ProgramGenerator generator = new ProgramGenerator();
+        if (shape.equals("statements")) {
+            generator.statements = 250 * scale;
+        } else if (shape.equals("loopDepth")) {
+            generator.loopDepth = 4 * scale;
+        } else if (shape.equals("ifChain")) {
+            generator.ifChain = 50 * scale;
+        } else if (shape.equals("concatenation")) {
+            generator.concatenation = 100 * scale;
+        } else if (shape.equals("constants")) {
+            generator.constants = 250 * scale;
+        } else {
+            generator.classes = 10 * scale;
+        }
+        return generator;
+    }
+
+    /**
+     * Parse the specified source, in the current compilation session.
+     *
+     * @param source
+     *            the source.
+     * @return the AST.
+     */
+
+    private static JCompilationUnit parse(String source) {
+        return new Parser(new LookaheadScanner("Synthetic.java",
+                new StringReader(source))).compilationUnit();
+    }
+
+    @Benchmark
+    public JCompilationUnit parse() {
+        return parse(source);
+    }
+
+    @Benchmark
+    public JCompilationUnit compile() {
+        CompilationSession session = BenchmarkSources.session();
+        session.enter();
+        JCompilationUnit ast = parse(source);
+        ast.preAnalyze();
+        ast.analyze(null);
+        ast.codegen(new CLEmitter(false));
+        session.exit();
+        return ast;
+    }
+
+}
@@ -0,0 +1,88 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the SPIM back end (NEmitter: control flow graphs, HIR, LIR,
+ * register allocation, and writing the .s file), in corpora per second.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpimBenchmark {
+
+    @Param( { "spim", "synthetic" })
+    public String corpus;
+
+    @Param( { "naive", "linear", "graph" })
+    public String registerAllocation;
+
+    private BenchmarkSources sources;
+
+    /** The classes generated for each source file. */
+    private ArrayList<ArrayList<CLFile>> clFiles;
+
+    /** Where the .s files are written. */
+    private File destDir;
+
+    @Setup
+    public void setUp() throws IOException {
+        sources = new BenchmarkSources(corpus);
+        clFiles = new ArrayList<ArrayList<CLFile>>();
+        CompilationSession session = BenchmarkSources.session();
+        for (int i = 0; i < sources.sources.length; i++) {
+            session = BenchmarkSources.session();
+            session.enter();
+            JCompilationUnit ast = sources.parse(i);
+            ast.preAnalyze();
+            ast.analyze(null);
+            ast.codegen(new CLEmitter(false));
+            clFiles.add(ast.clFiles());
+            session.exit();
+        }
+        destDir = Files.createTempDirectory("j--bench").toFile();
+        session.enter();
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = destDir.listFiles();
+        for (int i = 0; files != null && i < files.length; i++) {
+            files[i].delete();
+        }
+        destDir.delete();
+    }
+
+    @Benchmark
+    public void emit() {
+        for (int i = 0; i < clFiles.size(); i++) {
+            NEmitter nEmitter = new NEmitter(sources.fileNames[i], clFiles
+                    .get(i), registerAllocation);
+            nEmitter.destinationDir(destDir.getPath());
+            nEmitter.write();
+        }
+    }
+
+}
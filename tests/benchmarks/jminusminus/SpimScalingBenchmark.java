@@ -0,0 +1,67 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * How the time taken by the SPIM back end grows with one dimension of the
+ * shape of a program; see ScalingBenchmark. Only the dimensions the back end
+ * copes with at every scale are measured: it cannot yet load more string
+ * constants than fit an ldc, and the linear scan register allocator fails on
+ * loops nested three deep.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpimScalingBenchmark {
+
+    @Param( { "statements", "ifChain", "classes" })
+    public String shape;
+
+    @Param( { "1", "2", "4", "8" })
+    public int scale;
+
+    @Param( { "linear", "graph" })
+    public String registerAllocation;
+
+    /** Classes of the program. */
+    private ArrayList<CLFile> clFiles;
+
+    @Setup
+    public void setUp() {
+        ProgramGenerator generator = ScalingBenchmark.generator(shape, scale);
+        generator.spim = true;
+        BenchmarkSources.session().enter();
+        JCompilationUnit ast = new Parser(new LookaheadScanner(
+                "Synthetic.java", new StringReader(generator.generate())))
+                .compilationUnit();
+        ast.preAnalyze();
+        ast.analyze(null);
+        ast.codegen(new CLEmitter(false));
+        clFiles = ast.clFiles();
+    }
+
+    @Benchmark
+    public NEmitter emit() {
+        return new NEmitter("Synthetic.java", clFiles, registerAllocation);
+    }
+
+}
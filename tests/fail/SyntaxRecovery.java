@@ -0,0 +1,45 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package fail;
+
+import java.lang.System;
+
+// This program has syntax errors in several declarations, and a type error in
+// one without any; each of them should be reported, and it shouldn't compile.
+
+public class SyntaxRecovery {
+
+    public static int inc(int n) {
+        int x = n +;
+        if (x > 0 {
+            x = x - 1;
+        }
+        return x;
+    }
+
+    public static int twice(int n) {
+        return n * 2
+    }
+
+    public static int missing(int n) {
+        int x = n
+        x = x + ;
+        return x;
+    }
+
+    public static int both(int n) {
+        boolean b = n;
+        return inc(n) + twice(n);
+    }
+
+    public static int broken(int a, ) {
+        return a;
+    }
+
+    = { 1 };
+
+    public static void main(String[] args) {
+        System.out.println(both(3));
+    }
+
+}
@@ -0,0 +1,146 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package junit;
+
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.Map;
+import junit.framework.TestCase;
+import jminusminus.CompilationResult;
+import jminusminus.Diagnostic;
+import jminusminus.InMemoryCompiler;
+
+/**
+ * JUnit test case for compiling j-- source held in memory.
+ */
+
+public class InMemoryCompilerTest extends TestCase {
+
+    /** Set by the static initializer of InitializationProbe. */
+    static boolean probeInitialized;
+
+    private static final String FACTORIAL = "package pass;\n"
+            + "\n"
+            + "public class MemoryFactorial {\n"
+            + "    public static int factorial(int n) {\n"
+            + "        if (n <= 0) {\n"
+            + "            return 1;\n"
+            + "        } else {\n"
+            + "            return n * factorial(n - 1);\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n";
+
+    /**
+     * Class loader for the generated class file bytes.
+     */
+
+    private static class BytesClassLoader extends ClassLoader {
+
+        private Map<String, byte[]> classBytes;
+
+        public BytesClassLoader(Map<String, byte[]> classBytes) {
+            this.classBytes = classBytes;
+        }
+
+        protected Class<?> findClass(String name)
+                throws ClassNotFoundException {
+            byte[] bytes = classBytes.get(name.replace('.', '/'));
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+    }
+
+    public void testCompile() throws Exception {
+        CompilationResult result = InMemoryCompiler.compile(
+                "MemoryFactorial.java", FACTORIAL);
+        assertFalse(result.errorHasOccurred());
+        assertTrue(result.diagnostics().isEmpty());
+        assertEquals(1, result.clFiles().size());
+        assertTrue(result.classBytes().containsKey("pass/MemoryFactorial"));
+
+        Class<?> factorial = new BytesClassLoader(result.classBytes())
+                .loadClass("pass.MemoryFactorial");
+        Method method = factorial.getMethod("factorial", int.class);
+        assertEquals(120, method.invoke(null, 5));
+    }
+
+    public void testCompileBytes() {
+        CompilationResult result = InMemoryCompiler.compile(
+                "MemoryFactorial.java", FACTORIAL.getBytes(Charset
+                        .forName("UTF-8")), Charset.forName("UTF-8"));
+        assertFalse(result.errorHasOccurred());
+        assertEquals(1, result.classBytes().size());
+    }
+
+    public void testDiagnostics() {
+        CompilationResult result = InMemoryCompiler.compile("Broken.java",
+                "public class Broken {\n"
+                        + "    public int f() {\n"
+                        + "        return 'c' + true;\n"
+                        + "    }\n"
+                        + "}\n");
+        assertTrue(result.errorHasOccurred());
+        assertTrue(result.clFiles().isEmpty());
+        assertFalse(result.diagnostics().isEmpty());
+        Diagnostic diagnostic = result.diagnostics().get(0);
+        assertEquals(Diagnostic.Kind.SEMANTIC, diagnostic.kind());
+        assertEquals("Broken.java", diagnostic.fileName());
+        assertEquals(3, diagnostic.line());
+    }
+
+    public void testImportDoesNotInitialize() {
+        CompilationResult result = InMemoryCompiler.compile("Probe.java",
+                "import junit.InitializationProbe;\n"
+                        + "public class Probe {\n"
+                        + "}\n");
+        assertFalse(result.errorHasOccurred());
+        assertFalse(probeInitialized);
+    }
+
+    public void testSyntaxError() {
+        CompilationResult result = InMemoryCompiler.compile("Broken.java",
+                "public class Broken {\n" + "    int x\n" + "}\n");
+        assertTrue(result.errorHasOccurred());
+        assertEquals(Diagnostic.Kind.SYNTAX, result.diagnostics().get(0)
+                .kind());
+    }
+
+    public void testSyntaxAndSemanticErrors() {
+        CompilationResult result = InMemoryCompiler.compile("Broken.java",
+                "public class Broken {\n"
+                        + "    public int f() {\n"
+                        + "        return 1 +;\n"
+                        + "    }\n"
+                        + "    public int g() {\n"
+                        + "        return 'c' + true;\n"
+                        + "    }\n"
+                        + "}\n");
+        assertTrue(result.errorHasOccurred());
+        assertTrue(result.clFiles().isEmpty());
+        assertEquals(2, result.diagnostics().size());
+        assertEquals(Diagnostic.Kind.SYNTAX, result.diagnostics().get(0)
+                .kind());
+        assertEquals(3, result.diagnostics().get(0).line());
+        assertEquals(Diagnostic.Kind.SEMANTIC, result.diagnostics().get(1)
+                .kind());
+        assertEquals(6, result.diagnostics().get(1).line());
+    }
+
+}
+
+/**
+ * A class imported by testImportDoesNotInitialize(), whose static initializer
+ * must not run.
+ */
+
+class InitializationProbe {
+
+    static {
+        InMemoryCompilerTest.probeInitialized = true;
+    }
+
+}
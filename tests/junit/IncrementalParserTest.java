@@ -0,0 +1,167 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package junit;
+
+import junit.framework.TestCase;
+import jminusminus.IncrementalParser;
+
+/**
+ * JUnit test case for re-parsing edited source.
+ */
+
+public class IncrementalParserTest extends TestCase {
+
+    private static final String SOURCE = "package pass;\n"
+            + "\n"
+            + "public class Edited {\n"
+            + "    public int f(int n) {\n"
+            + "        return n + 1;\n"
+            + "    }\n"
+            + "\n"
+            + "    public int g(int n) {\n"
+            + "        return n * 2;\n"
+            + "    }\n"
+            + "}\n"
+            + "\n"
+            + "class Other {\n"
+            + "    public int h(int n) {\n"
+            + "        return n;\n"
+            + "    }\n"
+            + "}\n";
+
+    public void testEditInMember() {
+        IncrementalParser parser = new IncrementalParser("Edited.java",
+                SOURCE);
+        Object compilationUnit = parser.compilationUnit();
+        int offset = SOURCE.indexOf("n + 1");
+        parser.edit(offset, 1, "(n - 1)");
+        assertSame(compilationUnit, parser.compilationUnit());
+        assertFalse(parser.errorHasOccurred());
+        assertEquals(SOURCE.replace("n + 1", "(n - 1) + 1"), parser
+                .source());
+        assertParsedAsWhole(parser);
+    }
+
+    public void testEditAddingLines() {
+        IncrementalParser parser = new IncrementalParser("Edited.java",
+                SOURCE);
+        Object compilationUnit = parser.compilationUnit();
+        int offset = SOURCE.indexOf("n + 1");
+        parser.edit(offset, 1, "(n - 1)\n\n");
+        assertSame(compilationUnit, parser.compilationUnit());
+        assertFalse(parser.errorHasOccurred());
+        assertEquals(SOURCE.replace("n + 1", "(n - 1)\n\n + 1"), parser
+                .source());
+        assertParsedAsWhole(parser);
+    }
+
+    public void testEditRemovingLines() {
+        IncrementalParser parser = new IncrementalParser("Edited.java",
+                SOURCE);
+        Object compilationUnit = parser.compilationUnit();
+        String removed = "{\n        return n * 2;\n    }";
+        int offset = SOURCE.indexOf(removed);
+        parser.edit(offset, removed.length(), "{ return n * 2; }");
+        assertSame(compilationUnit, parser.compilationUnit());
+        assertFalse(parser.errorHasOccurred());
+        assertParsedAsWhole(parser);
+    }
+
+    public void testEditBetweenMembers() {
+        IncrementalParser parser = new IncrementalParser("Edited.java",
+                SOURCE);
+        Object compilationUnit = parser.compilationUnit();
+        int offset = SOURCE.indexOf("\n    public int g");
+        parser.edit(offset, 0,
+                "    public int k() {\n        return 0;\n    }\n");
+        assertSame(compilationUnit, parser.compilationUnit());
+        assertFalse(parser.errorHasOccurred());
+        assertParsedAsWhole(parser);
+    }
+
+    public void testEditIntroducingError() {
+        IncrementalParser parser = new IncrementalParser("Edited.java",
+                SOURCE);
+        parser.edit(SOURCE.indexOf("n + 1"), 0, "\n\n");
+        String source = parser.source();
+        int offset = source.indexOf("n * 2;") + 5;
+        parser.edit(offset, 1, "");
+        assertTrue(parser.errorHasOccurred());
+        // Reported at the "}" after the statement, two lines further down
+        assertEquals(12, parser.diagnostics().get(0).line());
+        assertParsedAsWhole(parser);
+
+        parser.edit(offset, 0, ";");
+        assertFalse(parser.errorHasOccurred());
+        assertEquals(source, parser.source());
+        assertParsedAsWhole(parser);
+    }
+
+    public void testEditWhileInError() {
+        IncrementalParser parser = new IncrementalParser("Edited.java",
+                SOURCE);
+        Object compilationUnit = parser.compilationUnit();
+        int offset = SOURCE.indexOf("n * 2;") + 5;
+        parser.edit(offset, 1, "");
+        assertSame(compilationUnit, parser.compilationUnit());
+        assertEquals(10, parser.diagnostics().get(0).line());
+
+        // Only f is re-parsed; the error in g is moved down with it
+        parser.edit(SOURCE.indexOf("n + 1"), 1, "(n - 1)\n\n");
+        assertSame(compilationUnit, parser.compilationUnit());
+        assertTrue(parser.errorHasOccurred());
+        assertEquals(12, parser.diagnostics().get(0).line());
+        assertParsedAsWhole(parser);
+
+        offset = parser.source().indexOf("n * 2") + 5;
+        parser.edit(offset, 0, ";");
+        assertSame(compilationUnit, parser.compilationUnit());
+        assertFalse(parser.errorHasOccurred());
+        assertParsedAsWhole(parser);
+    }
+
+    public void testEditBreakingMember() {
+        IncrementalParser parser = new IncrementalParser("Edited.java",
+                SOURCE);
+        String removed = "        return n + 1;\n    }";
+        int offset = SOURCE.indexOf(removed);
+
+        // f now runs on into g, which a re-parse of f alone cannot see
+        parser.edit(offset, removed.length(), "        return n + 1;");
+        assertTrue(parser.errorHasOccurred());
+        assertParsedAsWhole(parser);
+
+        parser.edit(offset + removed.indexOf(';') + 1, 0, "\n    }");
+        assertFalse(parser.errorHasOccurred());
+        assertEquals(SOURCE, parser.source());
+        assertParsedAsWhole(parser);
+    }
+
+    public void testEditWithLexicalError() {
+        IncrementalParser parser = new IncrementalParser("Edited.java",
+                SOURCE);
+        int offset = SOURCE.indexOf("n * 2");
+        parser.edit(offset, 0, "'");
+        assertTrue(parser.errorHasOccurred());
+        assertParsedAsWhole(parser);
+
+        parser.edit(offset, 1, "");
+        assertFalse(parser.errorHasOccurred());
+        assertParsedAsWhole(parser);
+    }
+
+    /**
+     * Assert that the AST of the specified parser, with its line numbers, and
+     * its diagnostics are the ones a parse of its whole source gives.
+     */
+
+    private static void assertParsedAsWhole(IncrementalParser parser) {
+        IncrementalParser whole = new IncrementalParser("Edited.java", parser
+                .source());
+        assertEquals(whole.ast(), parser.ast());
+        assertEquals(whole.errorHasOccurred(), parser.errorHasOccurred());
+        assertEquals(whole.diagnostics().toString(), parser.diagnostics()
+                .toString());
+    }
+
+}
@@ -31,6 +31,8 @@ public class JMinusMinusTestRunner {
         suite.addTestSuite(RemainderTest.class);
         suite.addTestSuite(RightShiftTest.class);
         suite.addTestSuite(UnaryPlusTest.class);
+        suite.addTestSuite(InMemoryCompilerTest.class);
+        suite.addTestSuite(IncrementalParserTest.class);
         return suite;
     }
 